@@ -0,0 +1,198 @@
+import java.util.Iterator;
+
+/**
+ * Class that implements a self-balancing binary search tree (an AVL tree) on
+ * top of BSTMap. Every Node stores the height of its subtree, and after each
+ * put or remove the heights on the path to the root are updated and any Node
+ * whose children's heights differ by more than one is fixed with one or two
+ * rotations. The height of the tree therefore stays below 1.44 log2(n + 2),
+ * even when the keys are inserted in ascending order.
+ * @author Fengzhe Liu (fl2635)
+ * @version 1.0 October 18, 2026
+ */
+public class AVLMap<K extends Comparable<K>, V> extends BSTMap<K, V> {
+
+    /**
+     * Creates an empty AVL tree map.
+     */
+    public AVLMap() { }
+
+    /**
+     * Creates an AVL tree map of the given key-value pairs.
+     * @param elements an array of key-value pairs
+     */
+    public AVLMap(Pair<K, V>[] elements) {
+        super(elements);
+    }
+
+    /**
+     * Creates an AVL tree map of the given key-value pairs. If sorted is
+     * true, the tree is built directly from the array in linear time.
+     * @param elements an array of key-value pairs
+     * @param sorted   true if the pairs are sorted by key
+     */
+    public AVLMap(Pair<K, V>[] elements, boolean sorted) {
+        super(elements, sorted);
+    }
+
+    /**
+     * Creates an AVL tree map of the key-value pairs returned by the
+     * iterator, which must be in strictly ascending key order.
+     * @param sortedPairs an iterator over key-value pairs sorted by key
+     * @throws IllegalArgumentException if the keys are not strictly ascending
+     */
+    public AVLMap(Iterator<Pair<K, V>> sortedPairs) {
+        super(sortedPairs);
+    }
+
+    /**
+     * Node that also stores the height of its subtree. A leaf has height 0.
+     */
+    protected static class AVLNode<K, V> extends Node<K, V> {
+        int height;
+
+        AVLNode(K key, V value) {
+            super(key, value);
+        }
+    }
+
+    @Override
+    protected Node<K, V> newNode(K key, V value) {
+        return new AVLNode<>(key, value);
+    }
+
+    @Override
+    protected BSTMap<K, V> newMap() {
+        return new AVLMap<>();
+    }
+
+    @Override
+    protected void afterInsert(Node<K, V> z) {
+        rebalance(z.parent);
+    }
+
+    @Override
+    protected void afterRemove(Node<K, V> x) {
+        rebalance(x);
+    }
+
+    /**
+     * Returns the height of the tree in constant time, even after rotations.
+     * @return the height of the tree
+     */
+    @Override
+    public int height() {
+        return height(root);
+    }
+
+    /**
+     * Returns the height of the subtree rooted at node in constant time.
+     * @param node the root of the subtree
+     * @return the height of the subtree, or -1 if node is null
+     */
+    @Override
+    protected int height(Node<K, V> node) {
+        return node == null ? -1 : ((AVLNode<K, V>)node).height;
+    }
+
+    /**
+     * Walks from n up to the root, updating each Node and rotating any Node
+     * that has become unbalanced.
+     */
+    private void rebalance(Node<K, V> n) {
+        while (n != null) {
+            int balance = height(n.left) - height(n.right);
+            if (balance > 1) {
+                if (height(n.left.left) < height(n.left.right)) {
+                    rotateLeftAndUpdate(n.left);
+                }
+                n = rotateRightAndUpdate(n);
+            } else if (balance < -1) {
+                if (height(n.right.right) < height(n.right.left)) {
+                    rotateRightAndUpdate(n.right);
+                }
+                n = rotateLeftAndUpdate(n);
+            } else {
+                update(n);
+            }
+            n = n.parent;
+        }
+    }
+
+    private Node<K, V> rotateLeftAndUpdate(Node<K, V> x) {
+        Node<K, V> y = rotateLeft(x);
+        update(x);
+        update(y);
+        return y;
+    }
+
+    private Node<K, V> rotateRightAndUpdate(Node<K, V> x) {
+        Node<K, V> y = rotateRight(x);
+        update(x);
+        update(y);
+        return y;
+    }
+
+    /**
+     * Recomputes the height of n from its children. Besides the Nodes built
+     * from sorted input, it is called on every Node whose subtree changed
+     * during put and remove, children before parents, so subclasses can
+     * override it to maintain more data about subtrees.
+     * @param n the Node to update
+     */
+    @Override
+    protected void update(Node<K, V> n) {
+        ((AVLNode<K, V>)n).height =
+                1 + Math.max(height(n.left), height(n.right));
+    }
+
+    /**
+     * Inserts ascending keys into a plain BSTMap and into an AVLMap, then
+     * compares the shape of the trees and the time taken by get.
+     */
+    public static void main(String[] args) {
+        int n = 5000;
+        BSTMap<Integer, Integer> bst = new BSTMap<>();
+        AVLMap<Integer, Integer> avl = new AVLMap<>();
+        for (int i = 0; i < n; i++) {
+            bst.put(i, i);
+            avl.put(i, i);
+        }
+        System.out.println("Ascending inserts:        " + n);
+        System.out.println("BSTMap height:            " + bst.height());
+        System.out.println("AVLMap height:            " + avl.height());
+        System.out.printf("BSTMap search cost:       %.3f\n",
+                          bst.successfulSearchCost());
+        System.out.printf("AVLMap search cost:       %.3f\n",
+                          avl.successfulSearchCost());
+        for (int round = 0; round < 3; round++) {
+            long bstTime = timeLookups(bst, n);
+            long avlTime = timeLookups(avl, n);
+            if (round == 2) {   // the first rounds warm up the JIT
+                System.out.printf("BSTMap get:               %.1f ns\n",
+                                  (double)bstTime / n);
+                System.out.printf("AVLMap get:               %.1f ns\n",
+                                  (double)avlTime / n);
+            }
+        }
+
+        for (int i = 0; i < n; i += 2) {
+            avl.remove(i);
+        }
+        System.out.println("Size after removes:       " + avl.size());
+        System.out.println("AVLMap height:            " + avl.height());
+    }
+
+    private static long timeLookups(BSTMap<Integer, Integer> map, int n) {
+        long start = System.nanoTime();
+        long sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += map.get(i);
+        }
+        long elapsed = System.nanoTime() - start;
+        if (sum != (long)n * (n - 1) / 2) {
+            throw new IllegalStateException("Lookup returned a wrong value.");
+        }
+        return elapsed;
+    }
+}
@@ -0,0 +1,856 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.function.BiConsumer;
+
+/**
+ * Class for a sorted map stored as a B+tree in fixed-size pages of a file.
+ * Internal pages hold separator keys and the numbers of their child pages;
+ * leaf pages hold the keys and values and are linked left to right, so a
+ * range is read by finding its first leaf and following the links. Each page
+ * holds hundreds of mappings, so a tree of millions of keys is only three or
+ * four pages deep.
+ * <p>
+ * Pages are read and written with a FileChannel and kept, decoded, in a
+ * least-recently-used cache of a fixed number of pages. Only the cached
+ * pages use heap, so the map can be many times larger than memory. Keys and
+ * values are converted to bytes by the same Codecs as a MappedHashMap.
+ * <p>
+ * File layout (all numbers big-endian), in pages of PAGE_SIZE bytes:
+ * <pre>
+ * page 0, the header:
+ *   0  int   magic number 0x42505431
+ *   4  int   format version
+ *   8  int   page size
+ *  12  int   number of the root page
+ *  16  int   height of the tree, 1 for a single leaf
+ *  20  int   number of entries
+ *  24  int   number of pages in the file
+ *  28  int   number of the first free page, or 0
+ * every other page:
+ *   0  byte  type: 1 leaf, 2 internal, 3 free
+ *   2  short number of keys
+ *   4  int   next leaf for a leaf, next free page for a free page
+ *   8  leaf:     per mapping, short key length, key bytes, short value
+ *                length, value bytes
+ *      internal: int first child, then per key, short key length, key
+ *                bytes, int child holding the keys from this key up
+ * </pre>
+ * A page that grows past PAGE_SIZE is split in two by bytes. A page that
+ * falls below a quarter full is merged with a neighbour, or shares its
+ * mappings with it evenly if both do not fit in one page. Emptied pages are
+ * kept on a free list and reused. Changes stay in the cache until the page
+ * is evicted or flush() is called, so a process that stops without calling
+ * flush() or close() leaves the file inconsistent.
+ * @author Fengzhe Liu (fl2635)
+ * @version 1.0 October 18, 2026
+ */
+public class BPlusTreeMap<K extends Comparable<K>, V>
+        implements MyMap<K, V>, Closeable {
+    public static final int PAGE_SIZE = 4096;
+    private static final int MAGIC = 0x42505431, VERSION = 1;
+    private static final int PAGE_SIZE_FIELD = 8, ROOT = 12, HEIGHT = 16,
+            NUM_ENTRIES = 20, PAGE_COUNT = 24, FREE_HEAD = 28;
+    private static final byte LEAF = 1, INTERNAL = 2, FREE = 3;
+    private static final int TYPE = 0, COUNT = 2, NEXT = 4,
+            PAGE_HEADER_SIZE = 8;
+    // The most bytes one mapping may take in a leaf. A page over PAGE_SIZE
+    // then always splits into two halves that fit.
+    private static final int MAX_ENTRY_SIZE = (PAGE_SIZE - 12) / 4;
+    private static final int DEFAULT_CACHE_PAGES = 1024;
+
+    private final FileChannel channel;
+    private final MappedHashMap.Codec<K> keyCodec;
+    private final MappedHashMap.Codec<V> valueCodec;
+    private final int cachePages;
+    // The cached pages, least recently used first.
+    private final LinkedHashMap<Integer, Page> cache =
+            new LinkedHashMap<>(16, 0.75f, true);
+    // Copies of the header fields, written to the file by flush().
+    private int root, height, numEntries, pageCount, freeHead;
+    private long pageReads, pageWrites;
+
+    /**
+     * A page decoded into lists. used is the number of bytes the page takes
+     * in the file, which must not exceed PAGE_SIZE once an operation ends.
+     * It is kept up to date as entries come and go, and keyLengths holds the
+     * encoded length of each key, so that no key is encoded again for it.
+     */
+    private class Page {
+        final int id;
+        final boolean leaf;
+        final ArrayList<K> keys = new ArrayList<>();
+        final ArrayList<Integer> keyLengths = new ArrayList<>();
+        final ArrayList<byte[]> values;         // leaves only
+        final ArrayList<Integer> children;      // internal pages only
+        int next, used;
+        boolean dirty;
+
+        Page(int id, boolean leaf) {
+            this.id = id;
+            this.leaf = leaf;
+            values = leaf ? new ArrayList<>() : null;
+            children = leaf ? null : new ArrayList<>();
+        }
+    }
+
+    /**
+     * Opens the map stored in the given file, or creates an empty map there
+     * if the file does not exist or is empty, with a cache of 1024 pages.
+     * @param path       the file holding the map
+     * @param keyCodec   the codec for keys
+     * @param valueCodec the codec for values
+     * @throws IOException if the file cannot be opened or is not a
+     *                     BPlusTreeMap file
+     */
+    public BPlusTreeMap(Path path, MappedHashMap.Codec<K> keyCodec,
+                        MappedHashMap.Codec<V> valueCodec) throws IOException {
+        this(path, keyCodec, valueCodec, DEFAULT_CACHE_PAGES);
+    }
+
+    /**
+     * Opens the map stored in the given file, or creates an empty map there
+     * if the file does not exist or is empty.
+     * @param path       the file holding the map
+     * @param keyCodec   the codec for keys
+     * @param valueCodec the codec for values
+     * @param cachePages the number of pages to keep in memory
+     * @throws IOException if the file cannot be opened or is not a
+     *                     BPlusTreeMap file
+     * @throws IllegalArgumentException if cachePages is less than 1
+     */
+    public BPlusTreeMap(Path path, MappedHashMap.Codec<K> keyCodec,
+                        MappedHashMap.Codec<V> valueCodec, int cachePages)
+            throws IOException {
+        if (cachePages < 1) {
+            throw new IllegalArgumentException(
+                    "Illegal cache size: " + cachePages);
+        }
+        this.keyCodec = keyCodec;
+        this.valueCodec = valueCodec;
+        this.cachePages = cachePages;
+        channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                                   StandardOpenOption.READ,
+                                   StandardOpenOption.WRITE);
+        if (channel.size() == 0) {
+            pageCount = 1;
+            root = allocate(true).id;
+            height = 1;
+            flush();
+            return;
+        }
+        ByteBuffer header = ByteBuffer.allocate(PAGE_HEADER_SIZE + 24);
+        if (channel.size() < PAGE_SIZE
+                || channel.read(header, 0) < header.capacity()
+                || header.getInt(0) != MAGIC || header.getInt(4) != VERSION
+                || header.getInt(PAGE_SIZE_FIELD) != PAGE_SIZE) {
+            channel.close();
+            throw new IOException("Not a BPlusTreeMap file: " + path);
+        }
+        root = header.getInt(ROOT);
+        height = header.getInt(HEIGHT);
+        numEntries = header.getInt(NUM_ENTRIES);
+        pageCount = header.getInt(PAGE_COUNT);
+        freeHead = header.getInt(FREE_HEAD);
+    }
+
+    /**
+     * Returns the number of key-value mappings in this map.
+     * @return the number of key-value mappings in this map
+     */
+    @Override
+    public int size() {
+        return numEntries;
+    }
+
+    /**
+     * Returns true if this map contains no key-value mappings.
+     * @return true if this map contains no key-value mappings
+     */
+    @Override
+    public boolean isEmpty() {
+        return numEntries == 0;
+    }
+
+    /**
+     * Returns the number of pages on a path from the root to a leaf.
+     * @return the height of the tree
+     */
+    public int height() {
+        return height;
+    }
+
+    /**
+     * Returns the number of pages in the file, including the header and any
+     * free pages.
+     * @return the number of pages in the file
+     */
+    public int getPageCount() {
+        return pageCount;
+    }
+
+    /**
+     * Returns the number of pages read from the file since this map was
+     * opened.
+     * @return the number of pages read
+     */
+    public long getPageReads() {
+        return pageReads;
+    }
+
+    /**
+     * Returns the number of pages written to the file since this map was
+     * opened.
+     * @return the number of pages written
+     */
+    public long getPageWrites() {
+        return pageWrites;
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or null if this
+     * map contains no mapping for the key.
+     * @param  key the key whose associated value is to be returned
+     * @return the value to which the specified key is mapped, or null if this
+     *         map contains no mapping for the key
+     */
+    @Override
+    public V get(K key) {
+        Page leaf = findLeaf(key, null);
+        int i = Collections.binarySearch(leaf.keys, key);
+        V value = i >= 0 ? valueCodec.decode(leaf.values.get(i)) : null;
+        trimCache();
+        return value;
+    }
+
+    /**
+     * Associates the specified value with the specified key in this map. If the
+     * map previously contained a mapping for the key, the old value is replaced
+     * by the specified value.
+     * @param key   the key with which the specified value is to be associated
+     * @param value the value to be associated with the specified key
+     * @return the previous value associated with key, or null if there was no
+     *         mapping for key
+     * @throws NullPointerException if the value is null
+     * @throws IllegalArgumentException if the key and value take more than a
+     *                                  quarter of a page
+     */
+    @Override
+    public V put(K key, V value) {
+        if (value == null) {
+            throw new NullPointerException("Null values are not supported.");
+        }
+        byte[] valueBytes = valueCodec.encode(value);
+        int keyLength = keyCodec.encode(key).length;
+        int entrySize = 4 + keyLength + valueBytes.length;
+        if (entrySize > MAX_ENTRY_SIZE) {
+            throw new IllegalArgumentException("Mapping takes " + entrySize
+                    + " bytes, more than the limit of " + MAX_ENTRY_SIZE);
+        }
+        ArrayList<Page> path = new ArrayList<>();
+        Page leaf = findLeaf(key, path);
+        int i = Collections.binarySearch(leaf.keys, key);
+        V oldValue = null;
+        if (i >= 0) {
+            byte[] oldBytes = leaf.values.set(i, valueBytes);
+            oldValue = valueCodec.decode(oldBytes);
+            leaf.used += valueBytes.length - oldBytes.length;
+        } else {
+            leaf.keys.add(-i - 1, key);
+            leaf.keyLengths.add(-i - 1, keyLength);
+            leaf.values.add(-i - 1, valueBytes);
+            leaf.used += entrySize;
+            numEntries++;
+        }
+        leaf.dirty = true;
+        splitUpward(leaf, path);
+        trimCache();
+        return oldValue;
+    }
+
+    /**
+     * Removes the mapping for a key from this map if it is present.
+     * @param key the key whose mapping is to be removed from the map
+     * @return the previous value associated with key, or null if there was no
+     *         mapping for key
+     */
+    @Override
+    public V remove(K key) {
+        ArrayList<Page> path = new ArrayList<>();
+        Page leaf = findLeaf(key, path);
+        int i = Collections.binarySearch(leaf.keys, key);
+        if (i < 0) {
+            trimCache();
+            return null;
+        }
+        leaf.used -= entrySize(leaf, i);
+        leaf.keys.remove(i);
+        leaf.keyLengths.remove(i);
+        byte[] oldBytes = leaf.values.remove(i);
+        leaf.dirty = true;
+        numEntries--;
+        mergeUpward(leaf, path);
+        trimCache();
+        return valueCodec.decode(oldBytes);
+    }
+
+    /**
+     * Returns the leaf that would hold key. If path is not null, the internal
+     * pages on the way down are added to it, root first.
+     */
+    private Page findLeaf(K key, ArrayList<Page> path) {
+        Page p = page(root);
+        while (!p.leaf) {
+            if (path != null) {
+                path.add(p);
+            }
+            int i = Collections.binarySearch(p.keys, key);
+            p = page(p.children.get(i >= 0 ? i + 1 : -i - 1));
+        }
+        return p;
+    }
+
+    /**
+     * Splits p if it has grown past PAGE_SIZE, adds the new page to its
+     * parent, and so on up the path. Splitting the root adds a level.
+     */
+    private void splitUpward(Page p, ArrayList<Page> path) {
+        while (p.used > PAGE_SIZE) {
+            Page right = allocate(p.leaf);
+            Page parent;
+            if (path.isEmpty()) {
+                parent = allocate(false);
+                parent.children.add(p.id);
+                root = parent.id;
+                height++;
+            } else {
+                parent = path.remove(path.size() - 1);
+            }
+            int at = parent.children.indexOf(p.id);
+            parent.children.add(at + 1, right.id);
+            moveUpperHalf(p, right, parent, at, true);
+            p = parent;
+        }
+    }
+
+    /**
+     * Merges p with a neighbour if it is less than a quarter full, and so on
+     * up the path. If the two do not fit in one page, their mappings are
+     * divided between them evenly instead. A root left with a single child
+     * is removed.
+     */
+    private void mergeUpward(Page p, ArrayList<Page> path) {
+        while (!path.isEmpty() && p.used < PAGE_SIZE / 4) {
+            Page parent = path.remove(path.size() - 1);
+            int at = parent.children.indexOf(p.id);
+            int leftAt = at > 0 ? at - 1 : 0;
+            Page left = leftAt == at ? p : page(parent.children.get(leftAt));
+            Page right = leftAt == at ? page(parent.children.get(at + 1)) : p;
+            appendAll(left, parent.keys.get(leftAt),
+                      parent.keyLengths.get(leftAt), right);
+            if (left.used <= PAGE_SIZE) {
+                parent.used -= entrySize(parent, leftAt);
+                parent.keys.remove(leftAt);
+                parent.keyLengths.remove(leftAt);
+                parent.children.remove(leftAt + 1);
+                parent.dirty = true;
+                free(right);
+            } else {
+                moveUpperHalf(left, right, parent, leftAt, false);
+            }
+            if (parent.used > PAGE_SIZE) {
+                // The new separator is longer than the old one.
+                splitUpward(parent, path);
+                return;
+            }
+            p = parent;
+        }
+        if (p.id == root && !p.leaf && p.keys.isEmpty()) {
+            root = p.children.get(0);
+            height--;
+            free(p);
+        }
+    }
+
+    /**
+     * Moves the upper half of from, by bytes, into the empty page to, and
+     * puts the key that separates them at index at of their parent: inserted
+     * there if insert is true, or else in place of the key there. For
+     * internal pages, that key is taken out of from.
+     */
+    private void moveUpperHalf(Page from, Page to, Page parent, int at,
+                               boolean insert) {
+        int n = from.keys.size();
+        int total = from.used - headerSize(from);
+        int half = total / 2, bytes = 0, i = 0;
+        while (bytes < half) {
+            bytes += entrySize(from, i++);
+        }
+        K separator;
+        int separatorLength;
+        if (from.leaf) {
+            separator = from.keys.get(i);
+            separatorLength = from.keyLengths.get(i);
+            to.values.addAll(from.values.subList(i, n));
+            from.values.subList(i, n).clear();
+            to.next = from.next;
+            from.next = to.id;
+            to.used = headerSize(to) + total - bytes;
+            from.used = headerSize(from) + bytes;
+        } else {
+            // The key that crosses the halfway mark moves up to the parent,
+            // and its child becomes the first child of to.
+            separator = from.keys.get(i - 1);
+            separatorLength = from.keyLengths.get(i - 1);
+            to.children.addAll(from.children.subList(i, n + 1));
+            from.children.subList(i, n + 1).clear();
+            to.used = headerSize(to) + total - bytes;
+            from.used = headerSize(from) + bytes - entrySize(from, i - 1);
+            i--;
+        }
+        int start = from.leaf ? i : i + 1;
+        to.keys.addAll(from.keys.subList(start, n));
+        to.keyLengths.addAll(from.keyLengths.subList(start, n));
+        from.keys.subList(i, n).clear();
+        from.keyLengths.subList(i, n).clear();
+        from.dirty = to.dirty = true;
+
+        if (insert) {
+            parent.keys.add(at, separator);
+            parent.keyLengths.add(at, separatorLength);
+        } else {
+            parent.used -= entrySize(parent, at);
+            parent.keys.set(at, separator);
+            parent.keyLengths.set(at, separatorLength);
+        }
+        parent.used += entrySize(parent, at);
+        parent.dirty = true;
+    }
+
+    /**
+     * Moves everything in right to the end of left. For internal pages, the
+     * separator between them, whose encoded length is separatorLength, comes
+     * down from the parent in between.
+     */
+    private void appendAll(Page left, K separator, int separatorLength,
+                           Page right) {
+        if (left.leaf) {
+            left.values.addAll(right.values);
+            right.values.clear();
+            left.next = right.next;
+        } else {
+            left.keys.add(separator);
+            left.keyLengths.add(separatorLength);
+            left.used += 6 + separatorLength;
+            left.children.addAll(right.children);
+            right.children.clear();
+        }
+        left.keys.addAll(right.keys);
+        left.keyLengths.addAll(right.keyLengths);
+        left.used += right.used - headerSize(right);
+        right.keys.clear();
+        right.keyLengths.clear();
+        right.used = headerSize(right);
+        left.dirty = right.dirty = true;
+    }
+
+    private int headerSize(Page p) {
+        return p.leaf ? PAGE_HEADER_SIZE : PAGE_HEADER_SIZE + 4;
+    }
+
+    /**
+     * Returns the number of bytes the mapping or key at index i takes.
+     */
+    private int entrySize(Page p, int i) {
+        int keyLength = p.keyLengths.get(i);
+        return p.leaf ? 4 + keyLength + p.values.get(i).length
+                      : 6 + keyLength;
+    }
+
+    /**
+     * Returns the page with the given number, reading it into the cache if
+     * it is not there.
+     */
+    private Page page(int id) {
+        Page p = cache.get(id);
+        if (p == null) {
+            p = read(id);
+            cache.put(id, p);
+        }
+        return p;
+    }
+
+    /**
+     * Writes out and drops the least recently used pages until the cache is
+     * back to its size. Called only between operations, so that no page an
+     * operation is still changing can be dropped.
+     */
+    private void trimCache() {
+        Iterator<Page> iter = cache.values().iterator();
+        while (cache.size() > cachePages) {
+            Page p = iter.next();
+            if (p.dirty) {
+                write(p);
+            }
+            iter.remove();
+        }
+    }
+
+    /**
+     * Returns a new empty page, reusing a free page if there is one.
+     */
+    private Page allocate(boolean leaf) {
+        int id;
+        if (freeHead != 0) {
+            id = freeHead;
+            ByteBuffer b = ByteBuffer.allocate(PAGE_HEADER_SIZE);
+            readFully(b, (long)id * PAGE_SIZE);
+            freeHead = b.getInt(NEXT);
+        } else {
+            id = pageCount++;
+        }
+        Page p = new Page(id, leaf);
+        p.used = headerSize(p);
+        p.dirty = true;
+        cache.put(id, p);
+        return p;
+    }
+
+    /**
+     * Drops p from the cache and puts its page on the free list.
+     */
+    private void free(Page p) {
+        cache.remove(p.id);
+        ByteBuffer b = ByteBuffer.allocate(PAGE_HEADER_SIZE);
+        b.put(TYPE, FREE);
+        b.putInt(NEXT, freeHead);
+        writeFully(b, (long)p.id * PAGE_SIZE);
+        freeHead = p.id;
+    }
+
+    private Page read(int id) {
+        ByteBuffer b = ByteBuffer.allocate(PAGE_SIZE);
+        readFully(b, (long)id * PAGE_SIZE);
+        pageReads++;
+        byte type = b.get(TYPE);
+        if (type != LEAF && type != INTERNAL) {
+            throw new IllegalStateException(
+                    "Page " + id + " is not a tree page.");
+        }
+        Page p = new Page(id, type == LEAF);
+        int count = b.getShort(COUNT);
+        p.next = b.getInt(NEXT);
+        b.position(PAGE_HEADER_SIZE);
+        if (!p.leaf) {
+            p.children.add(b.getInt());
+        }
+        for (int i = 0; i < count; i++) {
+            byte[] keyBytes = readBytes(b);
+            p.keys.add(keyCodec.decode(keyBytes));
+            p.keyLengths.add(keyBytes.length);
+            if (p.leaf) {
+                p.values.add(readBytes(b));
+            } else {
+                p.children.add(b.getInt());
+            }
+        }
+        p.used = b.position();
+        return p;
+    }
+
+    private void write(Page p) {
+        ByteBuffer b = ByteBuffer.allocate(PAGE_SIZE);
+        b.put(TYPE, p.leaf ? LEAF : INTERNAL);
+        b.putShort(COUNT, (short)p.keys.size());
+        b.putInt(NEXT, p.next);
+        b.position(PAGE_HEADER_SIZE);
+        if (!p.leaf) {
+            b.putInt(p.children.get(0));
+        }
+        for (int i = 0; i < p.keys.size(); i++) {
+            writeBytes(b, keyCodec.encode(p.keys.get(i)));
+            if (p.leaf) {
+                writeBytes(b, p.values.get(i));
+            } else {
+                b.putInt(p.children.get(i + 1));
+            }
+        }
+        b.clear();
+        writeFully(b, (long)p.id * PAGE_SIZE);
+        pageWrites++;
+        p.dirty = false;
+    }
+
+    private static byte[] readBytes(ByteBuffer b) {
+        byte[] bytes = new byte[b.getShort()];
+        b.get(bytes);
+        return bytes;
+    }
+
+    private static void writeBytes(ByteBuffer b, byte[] bytes) {
+        b.putShort((short)bytes.length);
+        b.put(bytes);
+    }
+
+    private void readFully(ByteBuffer b, long position) {
+        try {
+            while (b.hasRemaining()) {
+                if (channel.read(b, position + b.position()) < 0) {
+                    throw new IOException("Unexpected end of file.");
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot read BPlusTreeMap file.",
+                                            e);
+        }
+    }
+
+    private void writeFully(ByteBuffer b, long position) {
+        try {
+            while (b.hasRemaining()) {
+                channel.write(b, position + b.position());
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot write BPlusTreeMap file.",
+                                            e);
+        }
+    }
+
+    /**
+     * Writes every changed page in the cache and the header to the file, and
+     * forces them to the disk.
+     * @throws IOException if the file cannot be written
+     */
+    public void flush() throws IOException {
+        for (Page p : cache.values()) {
+            if (p.dirty) {
+                write(p);
+            }
+        }
+        ByteBuffer header = ByteBuffer.allocate(PAGE_SIZE);
+        header.putInt(0, MAGIC);
+        header.putInt(4, VERSION);
+        header.putInt(PAGE_SIZE_FIELD, PAGE_SIZE);
+        header.putInt(ROOT, root);
+        header.putInt(HEIGHT, height);
+        header.putInt(NUM_ENTRIES, numEntries);
+        header.putInt(PAGE_COUNT, pageCount);
+        header.putInt(FREE_HEAD, freeHead);
+        writeFully(header, 0);
+        channel.force(false);
+    }
+
+    /**
+     * Writes any pending changes to the file and closes it. The map must not
+     * be used afterwards.
+     * @throws IOException if the file cannot be written or closed
+     */
+    @Override
+    public void close() throws IOException {
+        flush();
+        channel.close();
+    }
+
+    /**
+     * Returns a view of the mappings whose keys range from fromKey,
+     * inclusive, to toKey, exclusive. It can only be iterated, and reads the
+     * leaves in range one after another.
+     * @param fromKey the low endpoint of the keys in the view, inclusive
+     * @param toKey   the high endpoint of the keys in the view, exclusive
+     * @return a view of the mappings from fromKey up to toKey
+     * @throws IllegalArgumentException if fromKey is greater than toKey
+     */
+    public Iterable<Entry<K, V>> subMap(K fromKey, K toKey) {
+        if (fromKey.compareTo(toKey) > 0) {
+            throw new IllegalArgumentException("fromKey > toKey");
+        }
+        return () -> new MapItr(fromKey, toKey);
+    }
+
+    /**
+     * Returns a view of the mappings whose keys are strictly less than
+     * toKey. It can only be iterated.
+     * @param toKey the high endpoint of the keys in the view, exclusive
+     * @return a view of the mappings below toKey
+     */
+    public Iterable<Entry<K, V>> headMap(K toKey) {
+        return () -> new MapItr(null, toKey);
+    }
+
+    /**
+     * Returns a view of the mappings whose keys are greater than or equal to
+     * fromKey. It can only be iterated.
+     * @param fromKey the low endpoint of the keys in the view, inclusive
+     * @return a view of the mappings from fromKey up
+     */
+    public Iterable<Entry<K, V>> tailMap(K fromKey) {
+        return () -> new MapItr(fromKey, null);
+    }
+
+    /**
+     * Returns an iterator over the mappings in this map in ascending key
+     * order. The map must not be changed while the iterator is in use.
+     * @return an iterator over the mappings in this map
+     */
+    public Iterator<Entry<K, V>> iterator() {
+        return new MapItr(null, null);
+    }
+
+    /**
+     * Performs the given action on each mapping in this map in ascending key
+     * order.
+     * @param action the action to be performed on each key and value
+     */
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        for (Iterator<Entry<K, V>> iter = iterator(); iter.hasNext(); ) {
+            Entry<K, V> e = iter.next();
+            action.accept(e.key, e.value);
+        }
+    }
+
+    private class MapItr implements Iterator<Entry<K, V>> {
+        private final K toKey;
+        private Page leaf;
+        private int index;
+
+        MapItr(K fromKey, K toKey) {
+            this.toKey = toKey;
+            if (fromKey == null) {
+                leaf = page(root);
+                while (!leaf.leaf) {
+                    leaf = page(leaf.children.get(0));
+                }
+            } else {
+                leaf = findLeaf(fromKey, null);
+                int i = Collections.binarySearch(leaf.keys, fromKey);
+                index = i >= 0 ? i : -i - 1;
+            }
+            advance();
+            trimCache();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return leaf != null;
+        }
+
+        @Override
+        public Entry<K, V> next() {
+            if (leaf == null) {
+                throw new NoSuchElementException();
+            }
+            Entry<K, V> e = new Entry<>(leaf.keys.get(index),
+                    valueCodec.decode(leaf.values.get(index)));
+            index++;
+            advance();
+            trimCache();
+            return e;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        /**
+         * Moves on to the next leaf if this one is used up, and stops at
+         * toKey.
+         */
+        private void advance() {
+            while (leaf != null && index == leaf.keys.size()) {
+                leaf = leaf.next == 0 ? null : page(leaf.next);
+                index = 0;
+            }
+            if (leaf != null && toKey != null
+                    && leaf.keys.get(index).compareTo(toKey) >= 0) {
+                leaf = null;
+            }
+        }
+    }
+
+    /**
+     * Inserts random keys into a file with a small page cache, reopens it,
+     * reads back every key and a range, and removes half of the keys.
+     */
+    public static void main(String[] args) throws IOException {
+        Path path = args.length > 0 ? Path.of(args[0])
+                : Files.createTempFile("BPlusTreeMap", ".bin");
+        Files.deleteIfExists(path);
+        int n = 1000000, cachePages = 256;
+        int[] keys = new int[n];
+        for (int i = 0; i < n; i++) {
+            keys[i] = 2 * i;
+        }
+        Random random = new Random(42);
+        for (int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int t = keys[i];
+            keys[i] = keys[j];
+            keys[j] = t;
+        }
+
+        System.out.println("Keys: " + n + ", cache: " + cachePages
+                           + " pages of " + PAGE_SIZE + " bytes");
+        long start = System.nanoTime();
+        try (BPlusTreeMap<Integer, Integer> map = new BPlusTreeMap<>(
+                path, MappedHashMap.INTEGER_CODEC,
+                MappedHashMap.INTEGER_CODEC, cachePages)) {
+            for (int key : keys) {
+                map.put(key, key / 2);
+            }
+            System.out.printf("Random puts:        %.2f us each\n",
+                              (System.nanoTime() - start) / 1e3 / n);
+            System.out.println("Height:             " + map.height());
+            System.out.println("Pages:              " + map.getPageCount());
+            System.out.println("Pages read/written: " + map.getPageReads()
+                               + " / " + map.getPageWrites());
+        }
+        System.out.println("File size:          " + Files.size(path));
+
+        try (BPlusTreeMap<Integer, Integer> map = new BPlusTreeMap<>(
+                path, MappedHashMap.INTEGER_CODEC,
+                MappedHashMap.INTEGER_CODEC, cachePages)) {
+            start = System.nanoTime();
+            long sum = 0;
+            for (int key : keys) {
+                sum += map.get(key);
+            }
+            System.out.printf("Random gets:        %.2f us each\n",
+                              (System.nanoTime() - start) / 1e3 / n);
+            System.out.println("Sum of values:      " + sum + ", expected "
+                               + (long)n * (n - 1) / 2);
+
+            start = System.nanoTime();
+            int count = 0, previous = -1;
+            for (Entry<Integer, Integer> e : map.subMap(500000, 700000)) {
+                if (e.key <= previous) {
+                    System.out.println("Out of order: " + e.key);
+                }
+                previous = e.key;
+                count++;
+            }
+            System.out.printf("subMap of %d keys:  %.2f ms\n", count,
+                              (System.nanoTime() - start) / 1e6);
+
+            start = System.nanoTime();
+            for (int i = 0; i < n; i += 2) {
+                map.remove(keys[i]);
+            }
+            System.out.printf("Random removes:     %.2f us each\n",
+                              (System.nanoTime() - start) / 1e3 / (n / 2));
+            System.out.println("Size, height:       " + map.size() + ", "
+                               + map.height());
+        }
+        Files.deleteIfExists(path);
+    }
+}
@@ -1,3 +1,11 @@
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BiConsumer;
+
 /**
  * Class that implements a binary search tree which implements the MyMap
  * interface.
@@ -6,8 +14,17 @@
  */
 public class BSTMap<K extends Comparable<K>, V> implements MyMap<K, V> {
     public static final int PREORDER = 1, INORDER = 2, POSTORDER = 3;
+    // Sorted input with at least this many pairs is built in parallel.
+    private static final int PARALLEL_THRESHOLD = 8192;
+    // The operations that merge can perform on two maps.
+    private static final int UNION = 1, INTERSECTION = 2, DIFFERENCE = 3;
     protected Node<K, V> root;
     protected int size;
+    // The height and sum of levels of the tree, valid only while shapeKnown
+    // is true. put keeps them up to date; anything that moves Nodes already
+    // in the tree clears shapeKnown, and the next query walks the tree once.
+    private boolean shapeKnown;
+    private int knownHeight, knownSumLevels;
 
     /**
      * Creates an empty binary search tree map.
@@ -25,15 +42,47 @@ public class BSTMap<K extends Comparable<K>, V> implements MyMap<K, V> {
     /**
      * Creates a binary search tree map of the given key-value pairs. If
      * sorted is true, a balanced tree will be created. If sorted is false,
-     * the pairs will be inserted in the order they are received.
+     * the pairs will be inserted in the order they are received. A large
+     * sorted array is split among the threads of the common fork-join pool.
      * @param elements an array of key-value pairs
      */
     public BSTMap(Pair<K, V>[] elements, boolean sorted) {
-        if (!sorted) {
-            insertElements(elements);
+        if (sorted) {
+            root = buildBalanced(elements, 0, elements.length - 1);
         } else {
-            root = createBST(elements, 0, elements.length - 1);
+            insertElements(elements);
+        }
+    }
+
+    /**
+     * Creates a balanced binary search tree map of the key-value pairs
+     * returned by the iterator, which must be in strictly ascending key order.
+     * The iterator is read once and its length need not be known, so the
+     * pairs can come straight from a file or a stream. The Nodes are first
+     * linked into a list through their right references and then arranged
+     * into a tree of the same shape createBST builds, without an array.
+     * @param sortedPairs an iterator over key-value pairs sorted by key
+     * @throws IllegalArgumentException if the keys are not strictly ascending
+     */
+    public BSTMap(Iterator<Pair<K, V>> sortedPairs) {
+        Node<K, V> head = null, tail = null;
+        while (sortedPairs.hasNext()) {
+            Pair<K, V> pair = sortedPairs.next();
+            if (tail != null && pair.key.compareTo(tail.key) <= 0) {
+                throw new IllegalArgumentException(
+                        "Keys are not in strictly ascending order: "
+                        + tail.key + ", " + pair.key);
+            }
+            Node<K, V> n = newNode(pair.key, pair.value);
+            if (tail == null) {
+                head = n;
+            } else {
+                tail.right = n;
+            }
+            tail = n;
+            size++;
         }
+        root = buildFromList(new NodeList<>(head), size);
     }
 
     /**
@@ -49,24 +98,130 @@ public class BSTMap<K extends Comparable<K>, V> implements MyMap<K, V> {
      * @return      the root of the balanced tree of pairs
      */
     protected Node<K, V> createBST(Pair<K, V>[] pairs, int low, int high) {
+        if (low > high) {
+            return null;
+        }
+        size += high - low + 1;
+        shapeKnown = false;
+        return buildSubtree(pairs, low, high);
+    }
+
+    /**
+     * Builds a balanced tree of a range of a sorted array and counts its
+     * Nodes, like createBST, but splits a large range among the threads of
+     * the common fork-join pool.
+     */
+    private Node<K, V> buildBalanced(Pair<K, V>[] pairs, int low, int high) {
+        shapeKnown = false;
+        if (high - low + 1 < PARALLEL_THRESHOLD) {
+            return createBST(pairs, low, high);
+        }
+        size += high - low + 1;
+        return ForkJoinPool.commonPool().invoke(
+                new BuildTask(pairs, low, high));
+    }
+
+    /**
+     * Does the work of createBST without counting the Nodes, so that several
+     * threads can build parts of one tree at the same time.
+     */
+    private Node<K, V> buildSubtree(Pair<K, V>[] pairs, int low, int high) {
         if (low > high) {
             return null;
         }
         int mid = low + (high - low) / 2;
         Pair<K, V> pair = pairs[mid];
-        Node<K, V> parent = new Node<>(pair.key, pair.value);
-        size++;
-        parent.left = createBST(pairs, low, mid - 1);
-        if (parent.left != null) {
-            parent.left.parent = parent;
+        Node<K, V> parent = newNode(pair.key, pair.value);
+        return link(parent, buildSubtree(pairs, low, mid - 1),
+                    buildSubtree(pairs, mid + 1, high));
+    }
+
+    /**
+     * Builds the tree of a range of a sorted array. Ranges of at least
+     * PARALLEL_THRESHOLD pairs build their left half in a forked task while
+     * the current thread builds the right half. Tasks are never serialized.
+     */
+    @SuppressWarnings("serial")
+    private class BuildTask extends RecursiveTask<Node<K, V>> {
+        private final Pair<K, V>[] pairs;
+        private final int low, high;
+
+        BuildTask(Pair<K, V>[] pairs, int low, int high) {
+            this.pairs = pairs;
+            this.low = low;
+            this.high = high;
+        }
+
+        @Override
+        protected Node<K, V> compute() {
+            if (high - low + 1 < PARALLEL_THRESHOLD) {
+                return buildSubtree(pairs, low, high);
+            }
+            int mid = low + (high - low) / 2;
+            BuildTask leftTask = new BuildTask(pairs, low, mid - 1);
+            leftTask.fork();
+            Node<K, V> right = new BuildTask(pairs, mid + 1, high).compute();
+            Pair<K, V> pair = pairs[mid];
+            return link(newNode(pair.key, pair.value), leftTask.join(), right);
+        }
+    }
+
+    /**
+     * The unused part of a list of Nodes linked through their right
+     * references.
+     */
+    private static class NodeList<K, V> {
+        Node<K, V> head;
+
+        NodeList(Node<K, V> head) {
+            this.head = head;
+        }
+    }
+
+    /**
+     * Takes the next count Nodes off the list and arranges them into a
+     * balanced tree, reusing the Nodes themselves.
+     */
+    private Node<K, V> buildFromList(NodeList<K, V> list, int count) {
+        if (count == 0) {
+            return null;
+        }
+        int leftCount = (count - 1) / 2;
+        Node<K, V> left = buildFromList(list, leftCount);
+        Node<K, V> parent = list.head;
+        list.head = parent.right;
+        return link(parent, left, buildFromList(list, count - leftCount - 1));
+    }
+
+    /**
+     * Makes left and right the children of parent and updates parent.
+     * @return parent
+     */
+    private Node<K, V> link(Node<K, V> parent, Node<K, V> left,
+                            Node<K, V> right) {
+        parent.left = left;
+        if (left != null) {
+            left.parent = parent;
         }
-        parent.right = createBST(pairs, mid + 1, high);
-        if (parent.right != null) {
-            parent.right.parent = parent;
+        parent.right = right;
+        if (right != null) {
+            right.parent = parent;
         }
+        update(parent);
         return parent;
     }
 
+    /**
+     * Creates a new Node for the tree. Subclasses that keep extra data in
+     * their Nodes override this to return a subclass of Node.
+     * @param key   the key of the new Node
+     * @param value the value of the new Node
+     * @return a new Node holding the key and value
+     */
+    protected Node<K, V> newNode(K key, V value) {
+        return new Node<>(key, value);
+    }
+
     /**
      * Inserts the pairs into the tree in the order they appear in the given
      * array.
@@ -101,34 +256,7 @@ public class BSTMap<K extends Comparable<K>, V> implements MyMap<K, V> {
      *         traversal
      */
     public String preorder() {
-        StringBuilder builder = new StringBuilder();
-        builder.append("[");
-        preorder(root, builder, 0);
-        builder.append("]");
-        return builder.toString();
-    }
-
-    /**
-     * Visits the Nodes of the tree in a preorder traversal. Each Node's
-     * toString() return value should be appended to the StringBuilder. A ", "
-     * must appear between each Node's data in the final String.
-     * @param n            the current Node
-     * @param builder      the StringBuilder used to build up the output
-     * @param nodesVisited the number of nodes visited so far. Useful for
-     *                     determining when to append ", ".
-     * @return the number of nodes visited after each recursive call
-     */
-    private int preorder(Node<K, V> n, StringBuilder builder,
-                         int nodesVisited) {
-        if (n != null) {
-            if (nodesVisited != 0) {
-                builder.append(", ");
-            }
-            builder.append(n);
-            nodesVisited = preorder(n.left, builder, nodesVisited + 1);
-            nodesVisited = preorder(n.right, builder, nodesVisited);
-        }
-        return nodesVisited;
+        return traversal(PREORDER);
     }
 
     /**
@@ -138,34 +266,7 @@ public class BSTMap<K extends Comparable<K>, V> implements MyMap<K, V> {
      *         traversal
      */
     public String inorder() {
-        StringBuilder builder = new StringBuilder();
-        builder.append("[");
-        inorder(root, builder, 0);
-        builder.append("]");
-        return builder.toString();
-    }
-
-    /**
-     * Visits the Nodes of the tree in an inorder traversal. Each Node's
-     * toString() return value should be appended to the StringBuilder. A ", "
-     * must appear between each Node's data in the final String.
-     * @param n            the current Node
-     * @param builder      the StringBuilder used to build up the output
-     * @param nodesVisited the number of nodes visited so far. Useful for
-     *                     determining when to append ", ".
-     * @return the number of nodes visited after each recursive call
-     */
-    private int inorder(Node<K, V> n, StringBuilder builder,
-                        int nodesVisited) {
-        if (n != null) {
-            nodesVisited = inorder(n.left, builder, nodesVisited);
-            if (nodesVisited != 0) {
-                builder.append(", ");
-            }
-            builder.append(n);
-            nodesVisited = inorder(n.right, builder, nodesVisited + 1);
-        }
-        return nodesVisited;
+        return traversal(INORDER);
     }
 
     /**
@@ -175,35 +276,85 @@ public class BSTMap<K extends Comparable<K>, V> implements MyMap<K, V> {
      *         traversal
      */
     public String postorder() {
+        return traversal(POSTORDER);
+    }
+
+    /**
+     * Appends each Node's toString() return value to a StringBuilder in the
+     * given order, with ", " between the Nodes and the whole list enclosed in
+     * square brackets.
+     * @param order PREORDER, INORDER or POSTORDER
+     * @return the String of the visited Nodes
+     */
+    private String traversal(int order) {
         StringBuilder builder = new StringBuilder();
         builder.append("[");
-        postorder(root, builder, 0);
+        walk(root, order, (n, level) -> {
+            if (builder.length() > 1) {
+                builder.append(", ");
+            }
+            builder.append(n);
+        });
         builder.append("]");
         return builder.toString();
     }
 
     /**
-     * Visits the Nodes of the tree in a postorder traversal. Each Node's
-     * toString() return value should be appended to the StringBuilder. A ", "
-     * must appear between each Node's data in the final String.
-     * @param n            the current Node
-     * @param builder      the StringBuilder used to build up the output
-     * @param nodesVisited the number of nodes visited so far. Useful for
-     *                     determining when to append ", ".
-     * @return the number of nodes visited after each recursive call
+     * Action applied to each Node visited by walk.
      */
-    private int postorder(Node<K, V> n, StringBuilder builder,
-                          int nodesVisited) {
-        if (n != null) {
-            nodesVisited = postorder(n.left, builder, nodesVisited);
-            nodesVisited = postorder(n.right, builder, nodesVisited);
-            if (nodesVisited != 0) {
-                builder.append(", ");
+    private interface NodeVisitor<K, V> {
+        void visit(Node<K, V> n, int level);
+    }
+
+    /**
+     * Visits every Node in the subtree rooted at start in the given order,
+     * passing each Node's level below start to the visitor. The walk follows
+     * the parent links back up instead of recursing, so it needs constant
+     * extra memory and cannot overflow the stack on a degenerate tree.
+     * @param start   the root of the subtree to visit, may be null
+     * @param order   PREORDER, INORDER or POSTORDER
+     * @param visitor the action to apply to each Node
+     */
+    private void walk(Node<K, V> start, int order, NodeVisitor<K, V> visitor) {
+        if (start == null) {
+            return;
+        }
+        Node<K, V> n = start, from = start.parent;
+        int level = 0;
+        while (true) {
+            if (from == n.parent) {             // arrived from above
+                if (order == PREORDER) {
+                    visitor.visit(n, level);
+                }
+                if (n.left != null) {
+                    from = n;
+                    n = n.left;
+                    level++;
+                    continue;
+                }
+                from = null;                    // the empty left subtree
             }
-            builder.append(n);
-            nodesVisited++;
+            if (from == n.left) {               // done with the left subtree
+                if (order == INORDER) {
+                    visitor.visit(n, level);
+                }
+                if (n.right != null) {
+                    from = n;
+                    n = n.right;
+                    level++;
+                    continue;
+                }
+            }
+            if (order == POSTORDER) {           // done with both subtrees
+                visitor.visit(n, level);
+            }
+            if (n == start) {
+                return;
+            }
+            from = n;
+            n = n.parent;
+            level--;
         }
-        return nodesVisited;
     }
 
     /**
@@ -239,6 +390,404 @@ public class BSTMap<K extends Comparable<K>, V> implements MyMap<K, V> {
         return x;
     }
 
+    /**
+     * Returns the least key in this map, or null if the map is empty.
+     * @return the least key in this map, or null if the map is empty
+     */
+    public K firstKey() {
+        return root == null ? null : treeMinimum(root).key;
+    }
+
+    /**
+     * Returns the greatest key in this map, or null if the map is empty.
+     * @return the greatest key in this map, or null if the map is empty
+     */
+    public K lastKey() {
+        return root == null ? null : treeMaximum(root).key;
+    }
+
+    /**
+     * Returns the greatest key less than or equal to the given key, or null
+     * if there is no such key.
+     * @param key the key to search for
+     * @return the greatest key less than or equal to key, or null
+     */
+    public K floor(K key) {
+        return keyOf(floorNode(key, true));
+    }
+
+    /**
+     * Returns the least key greater than or equal to the given key, or null
+     * if there is no such key.
+     * @param key the key to search for
+     * @return the least key greater than or equal to key, or null
+     */
+    public K ceiling(K key) {
+        return keyOf(ceilingNode(key, true));
+    }
+
+    /**
+     * Returns the greatest key strictly less than the given key, or null if
+     * there is no such key.
+     * @param key the key to search for
+     * @return the greatest key less than key, or null
+     */
+    public K lowerKey(K key) {
+        return keyOf(floorNode(key, false));
+    }
+
+    /**
+     * Returns the least key strictly greater than the given key, or null if
+     * there is no such key.
+     * @param key the key to search for
+     * @return the least key greater than key, or null
+     */
+    public K higherKey(K key) {
+        return keyOf(ceilingNode(key, false));
+    }
+
+    private K keyOf(Node<K, V> n) {
+        return n == null ? null : n.key;
+    }
+
+    /**
+     * Returns the Node with the greatest key less than (or, if inclusive,
+     * equal to) the given key, or null if there is no such Node.
+     * @param key       the key to search for
+     * @param inclusive true if a Node with the key itself may be returned
+     * @return the Node with the greatest qualifying key, or null
+     */
+    protected Node<K, V> floorNode(K key, boolean inclusive) {
+        Node<K, V> x = root, best = null;
+        while (x != null) {
+            int comparison = key.compareTo(x.key);
+            if (comparison == 0 && inclusive) {
+                return x;
+            } else if (comparison > 0) {
+                best = x;
+                x = x.right;
+            } else {
+                x = x.left;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Returns the Node with the least key greater than (or, if inclusive,
+     * equal to) the given key, or null if there is no such Node.
+     * @param key       the key to search for
+     * @param inclusive true if a Node with the key itself may be returned
+     * @return the Node with the least qualifying key, or null
+     */
+    protected Node<K, V> ceilingNode(K key, boolean inclusive) {
+        Node<K, V> x = root, best = null;
+        while (x != null) {
+            int comparison = key.compareTo(x.key);
+            if (comparison == 0 && inclusive) {
+                return x;
+            } else if (comparison < 0) {
+                best = x;
+                x = x.left;
+            } else {
+                x = x.right;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Returns a view of the mappings whose keys range from fromKey,
+     * inclusive, to toKey, exclusive. The view is backed by this map, so
+     * changes to the map show through it, and it reads the tree only when
+     * used: iterating it visits O(log n + k) Nodes for k mappings in range.
+     * @param fromKey the low endpoint of the keys in the view, inclusive
+     * @param toKey   the high endpoint of the keys in the view, exclusive
+     * @return a view of the mappings from fromKey up to toKey
+     * @throws IllegalArgumentException if fromKey is greater than toKey
+     */
+    public SubMap subMap(K fromKey, K toKey) {
+        if (fromKey.compareTo(toKey) > 0) {
+            throw new IllegalArgumentException("fromKey > toKey");
+        }
+        return new SubMap(fromKey, toKey);
+    }
+
+    /**
+     * Returns a view of the mappings whose keys are strictly less than
+     * toKey. See subMap.
+     * @param toKey the high endpoint of the keys in the view, exclusive
+     * @return a view of the mappings below toKey
+     */
+    public SubMap headMap(K toKey) {
+        return new SubMap(null, toKey);
+    }
+
+    /**
+     * Returns a view of the mappings whose keys are greater than or equal to
+     * fromKey. See subMap.
+     * @param fromKey the low endpoint of the keys in the view, inclusive
+     * @return a view of the mappings from fromKey up
+     */
+    public SubMap tailMap(K fromKey) {
+        return new SubMap(fromKey, null);
+    }
+
+    /**
+     * A range of keys of a BSTMap. A null bound means the range is unbounded
+     * on that side.
+     */
+    public class SubMap implements Iterable<Entry<K, V>> {
+        private final K fromKey, toKey;
+
+        private SubMap(K fromKey, K toKey) {
+            this.fromKey = fromKey;
+            this.toKey = toKey;
+        }
+
+        private boolean inRange(K key) {
+            return (fromKey == null || key.compareTo(fromKey) >= 0)
+                   && (toKey == null || key.compareTo(toKey) < 0);
+        }
+
+        private Node<K, V> first() {
+            Node<K, V> n;
+            if (fromKey != null) {
+                n = ceilingNode(fromKey, true);
+            } else {
+                n = root == null ? null : treeMinimum(root);
+            }
+            return n != null && inRange(n.key) ? n : null;
+        }
+
+        private Node<K, V> next(Node<K, V> n) {
+            n = successor(n);
+            return n != null && (toKey == null || n.key.compareTo(toKey) < 0)
+                   ? n : null;
+        }
+
+        /**
+         * Returns the value to which the key is mapped, or null if the key is
+         * outside this range or not in the map.
+         * @param key the key whose associated value is to be returned
+         * @return the value to which the key is mapped, or null
+         */
+        public V get(K key) {
+            return inRange(key) ? BSTMap.this.get(key) : null;
+        }
+
+        /**
+         * Returns the least key in this range, or null if the range is empty.
+         * @return the least key in this range, or null
+         */
+        public K firstKey() {
+            return keyOf(first());
+        }
+
+        /**
+         * Returns the greatest key in this range, or null if the range is
+         * empty.
+         * @return the greatest key in this range, or null
+         */
+        public K lastKey() {
+            Node<K, V> n;
+            if (toKey != null) {
+                n = floorNode(toKey, false);
+            } else {
+                n = root == null ? null : treeMaximum(root);
+            }
+            return n != null && inRange(n.key) ? n.key : null;
+        }
+
+        /**
+         * Returns true if no key of the map is in this range.
+         * @return true if no key of the map is in this range
+         */
+        public boolean isEmpty() {
+            return first() == null;
+        }
+
+        /**
+         * Returns the number of mappings in this range. Counting visits
+         * every mapping in the range.
+         * @return the number of mappings in this range
+         */
+        public int size() {
+            int count = 0;
+            for (Node<K, V> n = first(); n != null; n = next(n)) {
+                count++;
+            }
+            return count;
+        }
+
+        /**
+         * Performs the given action on each mapping in this range in
+         * ascending key order.
+         * @param action the action to be performed on each key and value
+         */
+        public void forEach(BiConsumer<? super K, ? super V> action) {
+            for (Node<K, V> n = first(); n != null; n = next(n)) {
+                action.accept(n.key, n.value);
+            }
+        }
+
+        /**
+         * Returns an iterator over the mappings in this range in ascending
+         * key order. The map must not be modified while it is in use.
+         * @return an iterator over the mappings in this range
+         */
+        @Override
+        public Iterator<Entry<K, V>> iterator() {
+            return new Iterator<Entry<K, V>>() {
+                private Node<K, V> next = first();
+
+                @Override
+                public boolean hasNext() {
+                    return next != null;
+                }
+
+                @Override
+                public Entry<K, V> next() {
+                    if (next == null) {
+                        throw new NoSuchElementException();
+                    }
+                    Node<K, V> n = next;
+                    next = SubMap.this.next(n);
+                    return new Entry<>(n.key, n.value);
+                }
+            };
+        }
+    }
+
+    /**
+     * Returns a new map of the mappings in this map or in other. Where both
+     * have a key, the value from other is kept, as if every mapping of other
+     * had been put into a copy of this map. The keys of both maps are merged
+     * in order and built into a balanced tree, so this takes O(n + m) time
+     * however the two trees are shaped. The new map comes from newMap(), so
+     * it is of the same kind as this one.
+     * @param other the map to combine with this one
+     * @return a balanced map of the mappings in either map
+     */
+    public BSTMap<K, V> union(BSTMap<K, V> other) {
+        return merge(other, UNION);
+    }
+
+    /**
+     * Returns a new map of the mappings in this map whose keys are also in
+     * other, built as a balanced tree in O(n + m) time.
+     * @param other the map whose keys are kept
+     * @return a balanced map of the mappings of this map with keys in other
+     */
+    public BSTMap<K, V> intersection(BSTMap<K, V> other) {
+        return merge(other, INTERSECTION);
+    }
+
+    /**
+     * Returns a new map of the mappings in this map whose keys are not in
+     * other, built as a balanced tree in O(n + m) time.
+     * @param other the map whose keys are left out
+     * @return a balanced map of the mappings of this map with keys not in
+     *         other
+     */
+    public BSTMap<K, V> difference(BSTMap<K, V> other) {
+        return merge(other, DIFFERENCE);
+    }
+
+    /**
+     * Removes the mappings whose keys are greater than or equal to key from
+     * this map and returns them in a new map from newMap(). Both this map
+     * and the new map are rebuilt as balanced trees, in O(n) time in all.
+     * @param key the least key to move to the new map
+     * @return a balanced map of the mappings with keys from key up
+     */
+    public BSTMap<K, V> split(K key) {
+        Pair<K, V>[] pairs = toSortedPairs();
+        int cut = 0;
+        while (cut < pairs.length && pairs[cut].key.compareTo(key) < 0) {
+            cut++;
+        }
+        BSTMap<K, V> upper = newMap();
+        upper.root = upper.buildBalanced(pairs, cut, pairs.length - 1);
+        root = null;
+        size = 0;
+        // buildBalanced builds nothing when every key moved, so clear the
+        // cached shape here as well.
+        shapeKnown = false;
+        root = buildBalanced(pairs, 0, cut - 1);
+        return upper;
+    }
+
+    /**
+     * Returns a new empty map of the same kind as this one, to hold the
+     * results of union, intersection, difference and split. Subclasses whose
+     * Nodes keep extra data override it, so that the results keep it too.
+     * @return a new empty map
+     */
+    protected BSTMap<K, V> newMap() {
+        return new BSTMap<>();
+    }
+
+    /**
+     * Merges the mappings of this map and other in key order, keeping those
+     * that the operation selects, and builds a balanced map of them.
+     */
+    private BSTMap<K, V> merge(BSTMap<K, V> other, int operation) {
+        Pair<K, V>[] a = toSortedPairs(), b = other.toSortedPairs();
+        @SuppressWarnings("unchecked")
+        Pair<K, V>[] merged =
+                new Pair[operation == UNION ? a.length + b.length : a.length];
+        int i = 0, j = 0, count = 0;
+        while (i < a.length && j < b.length) {
+            int comparison = a[i].key.compareTo(b[j].key);
+            if (comparison < 0) {
+                if (operation != INTERSECTION) {
+                    merged[count++] = a[i];
+                }
+                i++;
+            } else if (comparison > 0) {
+                if (operation == UNION) {
+                    merged[count++] = b[j];
+                }
+                j++;
+            } else {
+                if (operation == UNION) {
+                    merged[count++] = b[j];
+                } else if (operation == INTERSECTION) {
+                    merged[count++] = a[i];
+                }
+                i++;
+                j++;
+            }
+        }
+        if (operation != INTERSECTION) {
+            while (i < a.length) {
+                merged[count++] = a[i++];
+            }
+        }
+        if (operation == UNION) {
+            while (j < b.length) {
+                merged[count++] = b[j++];
+            }
+        }
+        BSTMap<K, V> result = newMap();
+        result.shapeKnown = false;
+        result.root = result.buildBalanced(merged, 0, count - 1);
+        return result;
+    }
+
+    /**
+     * Returns the mappings of this map as an array of pairs in ascending key
+     * order.
+     */
+    private Pair<K, V>[] toSortedPairs() {
+        @SuppressWarnings("unchecked")
+        Pair<K, V>[] pairs = new Pair[size];
+        int[] i = {0};
+        forEach((key, value) -> pairs[i[0]++] = new Pair<>(key, value));
+        return pairs;
+    }
+
     /**
      * Associates the specified value with the specified key in this map. If the
      * map previously contained a mapping for the key, the old value is replaced
@@ -262,8 +811,10 @@ public class BSTMap<K extends Comparable<K>, V> implements MyMap<K, V> {
      */
     public V put(K key, V value) {
         Node<K, V> x = root, y = null;
+        int level = 0;
         while (x != null) {
             y = x;
+            level++;
             int comparison = key.compareTo(x.key);
             if (comparison < 0) {
                 x = x.left;
@@ -277,7 +828,7 @@ public class BSTMap<K extends Comparable<K>, V> implements MyMap<K, V> {
                 return oldValue;
             }
         }
-        Node<K, V> z = new Node<K, V>(key, value);
+        Node<K, V> z = newNode(key, value);
         z.parent = y;
         if (y == null) {
             root = z;
@@ -287,6 +838,11 @@ public class BSTMap<K extends Comparable<K>, V> implements MyMap<K, V> {
             y.right = z;
         }
         size++;
+        if (shapeKnown) {
+            knownHeight = Math.max(knownHeight, level);
+            knownSumLevels += level;
+        }
+        afterInsert(z);
         // There was no previous mapping for this key.
         return null;
     }
@@ -302,25 +858,94 @@ public class BSTMap<K extends Comparable<K>, V> implements MyMap<K, V> {
         if (z == null) {
             return null;
         }
+        // The lowest Node whose subtree lost a Node, or null if none is left.
+        Node<K, V> changed;
         if (z.left == null) {
+            changed = z.parent;
             transplant(z, z.right);
         } else if (z.right == null) {
+            changed = z.parent;
             transplant(z, z.left);
         } else {
             Node<K, V> y = treeMinimum(z.right);
             if (y.parent != z) {
+                changed = y.parent;
                 transplant(y, y.right);
                 y.right = z.right;
                 y.right.parent = y;
+            } else {
+                changed = y;
             }
             transplant(z, y);
             y.left = z.left;
             y.left.parent = y;
         }
         size--;
+        afterRemove(changed);
         return z.value;
     }
 
+    /**
+     * Recomputes any data n keeps about its subtree from its children. Does
+     * nothing here. It is called on each Node built from sorted input, after
+     * its children, and subclasses override it to fill in such data.
+     * @param n the Node to update
+     */
+    protected void update(Node<K, V> n) { }
+
+    /**
+     * Called by put after a new Node has been linked into the tree. Does
+     * nothing here. Subclasses override it to restore balance or update
+     * extra data on the path from z to the root.
+     * @param z the Node that was inserted
+     */
+    protected void afterInsert(Node<K, V> z) { }
+
+    /**
+     * Called by remove after a Node has been unlinked from the tree. Does
+     * nothing here. Subclasses override it to restore balance or update
+     * extra data on the path from x to the root.
+     * @param x the lowest Node whose subtree changed, or null if the tree
+     *          has no such Node
+     */
+    protected void afterRemove(Node<K, V> x) { }
+
+    /**
+     * Rotates the subtree rooted at x to the left, so that x's right child
+     * takes its place and x becomes that child's left child.
+     * @param x the root of the subtree to rotate; must have a right child
+     * @return the new root of the subtree
+     */
+    protected Node<K, V> rotateLeft(Node<K, V> x) {
+        Node<K, V> y = x.right;
+        x.right = y.left;
+        if (y.left != null) {
+            y.left.parent = x;
+        }
+        transplant(x, y);
+        y.left = x;
+        x.parent = y;
+        return y;
+    }
+
+    /**
+     * Rotates the subtree rooted at x to the right, so that x's left child
+     * takes its place and x becomes that child's right child.
+     * @param x the root of the subtree to rotate; must have a left child
+     * @return the new root of the subtree
+     */
+    protected Node<K, V> rotateRight(Node<K, V> x) {
+        Node<K, V> y = x.left;
+        x.left = y.right;
+        if (y.right != null) {
+            y.right.parent = x;
+        }
+        transplant(x, y);
+        y.right = x;
+        x.parent = y;
+        return y;
+    }
+
     /**
      * Returns a reference to the Node whose key value is the minimum key in the
      * tree.
@@ -335,7 +960,40 @@ public class BSTMap<K extends Comparable<K>, V> implements MyMap<K, V> {
         return x;
     }
 
+    /**
+     * Returns a reference to the Node whose key value is the maximum key in the
+     * tree.
+     * @param x the Node at which to start the traversal
+     * @return a reference to the Node whose key value is the maximum key in the
+     *         tree
+     */
+    protected Node<K, V> treeMaximum(Node<K, V> x) {
+        while (x.right != null) {
+            x = x.right;
+        }
+        return x;
+    }
+
+    /**
+     * Returns the Node with the smallest key greater than x's key, or null if
+     * x has the largest key in the tree.
+     * @param x the Node at which to start
+     * @return the inorder successor of x
+     */
+    protected Node<K, V> successor(Node<K, V> x) {
+        if (x.right != null) {
+            return treeMinimum(x.right);
+        }
+        Node<K, V> y = x.parent;
+        while (y != null && x == y.right) {
+            x = y;
+            y = y.parent;
+        }
+        return y;
+    }
+
     protected void transplant(Node<K, V> u, Node<K, V> v) {
+        shapeKnown = false;
         if (u.parent == null) {
             root = v;
         } else if (u == u.parent.left) {
@@ -357,6 +1015,53 @@ public class BSTMap<K extends Comparable<K>, V> implements MyMap<K, V> {
         return inorder();
     }
 
+    /**
+     * Returns an iterator over the mappings in this map in ascending key
+     * order. The iterator moves between Nodes with the parent links, so it
+     * needs constant extra memory however large or deep the tree is. The map
+     * must not be modified while the iterator is in use.
+     * @return an iterator over the mappings in this map
+     */
+    public Iterator<Entry<K, V>> iterator() {
+        return new TreeItr();
+    }
+
+    private class TreeItr implements Iterator<Entry<K, V>> {
+        private Node<K, V> next = root == null ? null : treeMinimum(root);
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Entry<K, V> next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            Node<K, V> n = next;
+            next = successor(n);
+            return new Entry<>(n.key, n.value);
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * Performs the given action on each mapping in this map in ascending key
+     * order. Unlike iterator(), it allocates nothing per mapping.
+     * @param action the action to be performed on each key and value
+     */
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        for (Node<K, V> n = root == null ? null : treeMinimum(root); n != null;
+             n = successor(n)) {
+            action.accept(n.key, n.value);
+        }
+    }
+
     /**
      * Returns an ASCII drawing of the tree.
      * @return an ASCII drawing of the tree
@@ -389,33 +1094,51 @@ public class BSTMap<K extends Comparable<K>, V> implements MyMap<K, V> {
 
     /**
      * Returns the height of the tree. If the tree is null, the height is -1.
+     * Takes constant time unless the tree has been restructured since the
+     * last query.
      * @return the height of the tree
      */
     public int height() {
-        return height(root) ;
+        measureShape();
+        return knownHeight;
     }
 
     protected int height(Node<K, V> node) {
-        if (node == null) {
-            return -1;
+        int[] height = {-1};
+        walk(node, PREORDER,
+             (n, level) -> height[0] = Math.max(height[0], level));
+        return height[0];
+    }
+
+    /**
+     * Walks the tree to find its height and sum of levels, unless they are
+     * already known. Inserting a leaf changes no other Node's level, so put
+     * can keep them up to date, but a remove or rotation moves whole
+     * subtrees, so it is cheaper to measure again on the next query than to
+     * track how far they moved.
+     */
+    private void measureShape() {
+        if (shapeKnown) {
+            return;
         }
-        return 1 + Math.max(height(node.left), height(node.right));
+        int[] shape = {-1, 0};
+        walk(root, PREORDER, (n, level) -> {
+            shape[0] = Math.max(shape[0], level);
+            shape[1] += level;
+        });
+        knownHeight = shape[0];
+        knownSumLevels = shape[1];
+        shapeKnown = true;
     }
 
     /**
-     * Returns the number of null references in the tree. Uses a recursive
-     * helper method to count the null references.
+     * Returns the number of null references in the tree. Every Node has two
+     * child references and all Nodes but the root are referenced once, so a
+     * tree of n Nodes has 2n - (n - 1) = n + 1 null references.
      * @return the number of null references in the tree
      */
     public int nullCount() {
-        return nullCount(root);
-    }
-
-    private int nullCount(Node<K, V> node) {
-        if (node == null) {
-            return 1;
-        }
-        return nullCount(node.left) + nullCount(node.right);
+        return size + 1;
     }
 
     /**
@@ -432,15 +1155,8 @@ public class BSTMap<K extends Comparable<K>, V> implements MyMap<K, V> {
      *         at the root
      */
     public int sumLevels() {
-        return sumLevels(root, 0);
-    }
-
-    private int sumLevels(Node<K, V> node, int level) {
-        if (node == null) {
-            return 0;
-        }
-        return sumLevels(node.left, level + 1) +
-                sumLevels(node.right, level + 1) + level;
+        measureShape();
+        return knownSumLevels;
     }
 
     /**
@@ -455,19 +1171,14 @@ public class BSTMap<K extends Comparable<K>, V> implements MyMap<K, V> {
      *        / \
      *        * * <- level 3
      * has sum 3(2) + 2(3) = 12.
+     * Replacing a null reference at level d with a Node adds d to the sum of
+     * levels and 2(d + 1) - d = d + 2 to this sum, so this sum is always the
+     * sum of levels plus 2n, here 4 + 2(4) = 12.
      * @return the sum of the levels of each null node in the tree starting at
      *         the root
      */
     public int sumNullLevels() {
-        return sumNullLevels(root, 0);
-    }
-
-    private int sumNullLevels(Node<K, V> node, int level) {
-        if (node == null) {
-            return level;
-        }
-        return sumNullLevels(node.left, level + 1) +
-                sumNullLevels(node.right, level + 1);
+        return sumLevels() + 2 * size;
     }
 
     public double successfulSearchCost() {
@@ -530,5 +1241,260 @@ public class BSTMap<K extends Comparable<K>, V> implements MyMap<K, V> {
         bst.printTraversal(PREORDER);
         bst.printTraversal(INORDER);
         bst.printTraversal(POSTORDER);
+
+        if (args.length == 0) {
+            demonstrateDegenerateTree();
+            demonstrateRangeQueries();
+            benchmarkBulkLoad();
+            benchmarkShapeStatistics();
+            benchmarkMerge();
+            checkSplits();
+        }
+    }
+
+    /**
+     * Splits chains of keys below their least key, above their greatest key
+     * and in the middle, and checks the sizes, the cached shape statistics
+     * and the kind of both halves.
+     */
+    private static void checkSplits() {
+        int[] splitKeys = {-5, 20, 5};
+        for (int kind = 0; kind < 2; kind++) {
+            for (int splitKey : splitKeys) {
+                BSTMap<Integer, Integer> lower =
+                        kind == 0 ? new BSTMap<>() : new AVLMap<>();
+                for (int i = 0; i < 10; i++) {
+                    lower.put(i, i);
+                }
+                lower.height();         // fill the cached shape
+                BSTMap<Integer, Integer> upper = lower.split(splitKey);
+                lower.put(-1, -1);
+                upper.put(100, 100);
+                for (BSTMap<Integer, Integer> half : Arrays.asList(lower,
+                                                                   upper)) {
+                    int[] sum = {0};
+                    half.walk(half.root, PREORDER,
+                              (n, level) -> sum[0] += level);
+                    if (half.getClass() != lower.getClass()
+                            || half.height() != half.height(half.root)
+                            || half.sumLevels() != sum[0]) {
+                        throw new IllegalStateException(
+                                "Wrong shape after split(" + splitKey + ")");
+                    }
+                }
+                if (lower.size() + upper.size() != 12) {
+                    throw new IllegalStateException(
+                            "Wrong sizes after split(" + splitKey + ")");
+                }
+            }
+        }
+        System.out.println();
+        System.out.println("Splits below, above and inside the keys: OK");
+    }
+
+    /**
+     * Merges two shards of keys with union and, for comparison, by putting
+     * every mapping of one shard into a copy of the other.
+     */
+    private static void benchmarkMerge() {
+        int n = 1000000;
+        @SuppressWarnings("unchecked")
+        Pair<Integer, Integer>[] evens = new Pair[n], mixed = new Pair[n];
+        for (int i = 0; i < n; i++) {
+            evens[i] = new Pair<>(2 * i, i);
+            // Half of these keys are also in evens, half are odd.
+            mixed[i] = new Pair<>(2 * i + i % 2, i);
+        }
+        BSTMap<Integer, Integer> a = new BSTMap<>(evens, true),
+                                 b = new BSTMap<>(mixed, true);
+        System.out.println();
+        System.out.println("Merging two shards of " + n + " keys");
+        for (int round = 0; round < 3; round++) {
+            System.gc();        // keep the last tree's garbage out of the time
+            long start = System.nanoTime();
+            BSTMap<Integer, Integer> union = a.union(b);
+            long unionTime = System.nanoTime() - start;
+            System.gc();
+            start = System.nanoTime();
+            BSTMap<Integer, Integer> copy = new BSTMap<>(evens, true);
+            b.forEach(copy::put);
+            long putTime = System.nanoTime() - start;
+            if (round == 2) {   // the first rounds warm up the JIT
+                System.out.println("Union size, height:       " + union.size()
+                                   + ", " + union.height());
+                System.out.println("Put size, height:         " + copy.size()
+                                   + ", " + copy.height());
+                System.out.printf("union:                    %.1f ms\n",
+                                  unionTime / 1e6);
+                System.out.printf("Copy and put:             %.1f ms\n",
+                                  putTime / 1e6);
+                System.out.println("Intersection, difference: "
+                                   + a.intersection(b).size() + ", "
+                                   + a.difference(b).size());
+            }
+        }
+    }
+
+    /**
+     * Polls the search costs of a growing tree the way a health dashboard
+     * would, then times the walk that a poll after a remove has to make.
+     */
+    private static void benchmarkShapeStatistics() {
+        int n = 1000000, pollEvery = 1000;
+        Random random = new Random(42);
+        System.out.println();
+        for (int round = 0; round < 3; round++) {
+            BSTMap<Integer, Integer> map = new BSTMap<>();
+            long pollTime = 0;
+            double cost = 0;
+            for (int i = 0; i < n; i++) {
+                map.put(random.nextInt(), i);
+                if (i % pollEvery == 0) {
+                    long start = System.nanoTime();
+                    cost += map.successfulSearchCost()
+                           + map.unsuccessfulSearchCost() + map.height();
+                    pollTime += System.nanoTime() - start;
+                }
+            }
+            map.remove(map.firstKey());
+            long start = System.nanoTime();
+            cost += map.successfulSearchCost();
+            long walkTime = System.nanoTime() - start;
+            if (cost == 42) {   // keep the JIT from dropping the polls
+                System.out.println();
+            }
+            if (round == 2) {   // the first rounds warm up the JIT
+                System.out.println("Polls while inserting:    "
+                                   + n / pollEvery);
+                System.out.printf("Average poll:             %.3f us\n",
+                                  pollTime / 1e3 / (n / pollEvery));
+                System.out.printf("Poll after a remove:      %.3f us\n",
+                                  walkTime / 1e3);
+            }
+        }
+    }
+
+    /**
+     * Builds a tree of sorted keys with createBST on one thread, with the
+     * fork-join constructor and from an iterator.
+     */
+    private static void benchmarkBulkLoad() {
+        int n = 2000000;
+        @SuppressWarnings("unchecked")
+        Pair<Integer, Integer>[] pairs = new Pair[n];
+        for (int i = 0; i < n; i++) {
+            pairs[i] = new Pair<>(i, i);
+        }
+        System.out.println();
+        System.out.println("Bulk loading " + n + " sorted keys on "
+                           + Runtime.getRuntime().availableProcessors()
+                           + " processor(s)");
+        int[] heights = new int[3];
+        for (int round = 0; round < 3; round++) {
+            long[] times = new long[3];
+            for (int method = 0; method < 3; method++) {
+                System.gc();    // keep the last tree's garbage out of the time
+                long start = System.nanoTime();
+                BSTMap<Integer, Integer> map;
+                if (method == 0) {
+                    map = new BSTMap<>();
+                    map.root = map.createBST(pairs, 0, n - 1);
+                } else if (method == 1) {
+                    map = new BSTMap<>(pairs, true);
+                } else {
+                    map = new BSTMap<>(Arrays.asList(pairs).iterator());
+                }
+                times[method] = System.nanoTime() - start;
+                heights[method] = map.height();
+            }
+            if (round == 2) {   // the first rounds warm up the JIT
+                System.out.printf("createBST, one thread:    %.1f ms\n",
+                                  times[0] / 1e6);
+                System.out.printf("Fork-join:                %.1f ms\n",
+                                  times[1] / 1e6);
+                System.out.printf("From an iterator:         %.1f ms\n",
+                                  times[2] / 1e6);
+                System.out.println("Heights:                  "
+                                   + Arrays.toString(heights));
+            }
+        }
+    }
+
+    /**
+     * Scans a range of timestamps with a subMap view and, for comparison, by
+     * walking the whole tree.
+     */
+    private static void demonstrateRangeQueries() {
+        int n = 1000000;
+        @SuppressWarnings("unchecked")
+        Pair<Integer, Integer>[] pairs = new Pair[n];
+        for (int i = 0; i < n; i++) {
+            pairs[i] = new Pair<>(i * 10, i);   // a reading every 10 ms
+        }
+        BSTMap<Integer, Integer> readings = new BSTMap<>(pairs, true);
+        System.out.println();
+        System.out.println("floor(12345):             "
+                           + readings.floor(12345));
+        System.out.println("ceiling(12345):           "
+                           + readings.ceiling(12345));
+        System.out.println("lowerKey(12340):          "
+                           + readings.lowerKey(12340));
+        System.out.println("higherKey(12340):         "
+                           + readings.higherKey(12340));
+        System.out.println("firstKey, lastKey:        " + readings.firstKey()
+                           + ", " + readings.lastKey());
+
+        int from = 5000000, to = 5010000;
+        long start = System.nanoTime();
+        long[] sum = {0};
+        readings.subMap(from, to).forEach((key, value) -> sum[0] += value);
+        long viewTime = System.nanoTime() - start;
+        System.out.println("Sum of subMap(" + from + ", " + to + "): "
+                           + sum[0]);
+
+        start = System.nanoTime();
+        sum[0] = 0;
+        readings.forEach((key, value) -> {
+            if (key >= from && key < to) {
+                sum[0] += value;
+            }
+        });
+        long scanTime = System.nanoTime() - start;
+        System.out.println("Sum from a full scan:     " + sum[0]);
+        System.out.printf("subMap view:              %.3f ms\n",
+                          viewTime / 1e6);
+        System.out.printf("Full scan:                %.3f ms\n",
+                          scanTime / 1e6);
+    }
+
+    /**
+     * Builds a tree from ascending keys, which degenerates into a linked list,
+     * and shows that the traversals and statistics still work on it.
+     */
+    private static void demonstrateDegenerateTree() {
+        int n = 30000;
+        BSTMap<Integer, Integer> bst = new BSTMap<>();
+        for (int i = 0; i < n; i++) {
+            bst.put(i, i);
+        }
+        System.out.println();
+        System.out.println("Degenerate tree of " + n + " ascending keys");
+        System.out.println("Height:                   " + bst.height());
+        System.out.println("Null count:               " + bst.nullCount());
+        System.out.printf("Successful search cost:   %.3f\n",
+                          bst.successfulSearchCost());
+        System.out.printf("Unsuccessful search cost: %.3f\n",
+                          bst.unsuccessfulSearchCost());
+        System.out.println("Inorder length:           "
+                           + bst.inorder().length());
+        long[] sum = {0};
+        bst.forEach((key, value) -> sum[0] += value);
+        System.out.println("Sum of values (forEach):  " + sum[0]);
+        sum[0] = 0;
+        Iterator<Entry<Integer, Integer>> iter = bst.iterator();
+        while (iter.hasNext()) {
+            sum[0] += iter.next().value;
+        }
+        System.out.println("Sum of values (iterator): " + sum[0]);
     }
 }
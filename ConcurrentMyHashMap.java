@@ -0,0 +1,523 @@
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Class for a thread-safe hash map. Reads never take a lock: bins are read
+ * through an AtomicReferenceArray and chain links are volatile. A put into an
+ * empty bin is a single compare-and-set. Any other write locks only the first
+ * node of its bin, so writers to different bins never wait for each other.
+ * <p>
+ * Growing the table is shared among threads. Bins are claimed in strides and
+ * copied into a table twice the size, and each moved bin is replaced by a
+ * forwarding node. Readers that reach a forwarding node continue in the new
+ * table. Writers that reach one help finish the resize first.
+ * <p>
+ * Iterators are weakly consistent. They never throw
+ * ConcurrentModificationException, return each mapping at most once, and may
+ * or may not reflect changes made after the iterator was created.
+ * @author Fengzhe Liu (fl2635)
+ * @version 1.0 October 18, 2026
+ */
+public class ConcurrentMyHashMap<K extends Comparable<K>, V>
+        implements MyMap<K, V> {
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final int MAX_CAPACITY = 1 << 30;
+    // Number of bins a thread claims at a time while helping with a resize.
+    private static final int TRANSFER_STRIDE = 16;
+    // Hash of forwarding nodes; hashes of ordinary nodes are never negative.
+    private static final int MOVED = -1;
+
+    private volatile AtomicReferenceArray<HashNode<K, V>> table;
+    // The resize in progress, or null if there is none.
+    private volatile Resize<K, V> resize;
+    private final Object resizeLock = new Object();
+    private final LongAdder count = new LongAdder();
+
+    private static class HashNode<K, V> {
+        final int hash;
+        final K key;
+        volatile V value;
+        volatile HashNode<K, V> next;
+
+        HashNode(int hash, K key, V value, HashNode<K, V> next) {
+            this.hash = hash;
+            this.key = key;
+            this.value = value;
+            this.next = next;
+        }
+    }
+
+    /**
+     * Placed in a bin of the old table once the bin has been moved.
+     */
+    private static final class ForwardingNode<K, V> extends HashNode<K, V> {
+        final Resize<K, V> resize;
+
+        ForwardingNode(Resize<K, V> resize) {
+            super(MOVED, null, null, null);
+            this.resize = resize;
+        }
+    }
+
+    /**
+     * The shared state of one resize.
+     */
+    private static final class Resize<K, V> {
+        final AtomicReferenceArray<HashNode<K, V>> oldTable, newTable;
+        final ForwardingNode<K, V> forwardingNode;
+        // The next bin of the old table to be claimed.
+        final AtomicInteger nextBin = new AtomicInteger();
+        // The number of bins of the old table that have been moved.
+        final AtomicInteger movedBins = new AtomicInteger();
+
+        Resize(AtomicReferenceArray<HashNode<K, V>> oldTable) {
+            this.oldTable = oldTable;
+            this.newTable = new AtomicReferenceArray<>(oldTable.length() * 2);
+            this.forwardingNode = new ForwardingNode<>(this);
+        }
+    }
+
+    public ConcurrentMyHashMap() {
+        table = new AtomicReferenceArray<>(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Returns the number of bins in this ConcurrentMyHashMap.
+     * @return the number of bins in this ConcurrentMyHashMap
+     */
+    public int getTableSize() {
+        return table.length();
+    }
+
+    /**
+     * Returns the number of key-value mappings in this map. The value may be
+     * out of date if other threads are modifying the map.
+     * @return the number of key-value mappings in this map
+     */
+    @Override
+    public int size() {
+        long n = count.sum();
+        return n < 0 ? 0 : n > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int)n;
+    }
+
+    /**
+     * Returns true if this map contains no key-value mappings.
+     * @return true if this map contains no key-value mappings
+     */
+    @Override
+    public boolean isEmpty() {
+        return count.sum() <= 0;
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or null if this
+     * map contains no mapping for the key. Never blocks.
+     * @param  key the key whose associated value is to be returned
+     * @return the value to which the specified key is mapped, or null if this
+     *         map contains no mapping for the key
+     */
+    @Override
+    public V get(K key) {
+        int h = spread(key.hashCode());
+        AtomicReferenceArray<HashNode<K, V>> tab = table;
+        HashNode<K, V> e = tab.get(h & (tab.length() - 1));
+        while (e != null) {
+            if (e.hash == MOVED) {      // continue in the new table
+                tab = ((ForwardingNode<K, V>)e).resize.newTable;
+                e = tab.get(h & (tab.length() - 1));
+                continue;
+            }
+            if (e.hash == h && key.equals(e.key)) {
+                return e.value;
+            }
+            e = e.next;
+        }
+        return null;
+    }
+
+    /**
+     * Associates the specified value with the specified key in this map. If the
+     * map previously contained a mapping for the key, the old value is replaced
+     * by the specified value.
+     * @param key   the key with which the specified value is to be associated
+     * @param value the value to be associated with the specified key
+     * @return the previous value associated with key, or null if there was no
+     *         mapping for key
+     * @throws NullPointerException if the value is null
+     */
+    @Override
+    public V put(K key, V value) {
+        if (value == null) {
+            throw new NullPointerException("Null values are not supported.");
+        }
+        int h = spread(key.hashCode());
+        AtomicReferenceArray<HashNode<K, V>> tab = table;
+        while (true) {
+            int index = h & (tab.length() - 1);
+            HashNode<K, V> first = tab.get(index);
+            if (first == null) {
+                if (tab.compareAndSet(index, null,
+                                      new HashNode<>(h, key, value, null))) {
+                    break;
+                }
+            } else if (first.hash == MOVED) {
+                Resize<K, V> r = ((ForwardingNode<K, V>)first).resize;
+                helpResize(r);
+                tab = r.newTable;
+            } else {
+                synchronized (first) {
+                    if (tab.get(index) != first) {
+                        continue;   // the bin changed before we locked it
+                    }
+                    HashNode<K, V> e = first;
+                    while (true) {
+                        if (e.hash == h && key.equals(e.key)) {
+                            V oldValue = e.value;
+                            e.value = value;
+                            return oldValue;
+                        }
+                        if (e.next == null) {
+                            e.next = new HashNode<>(h, key, value, null);
+                            break;
+                        }
+                        e = e.next;
+                    }
+                }
+                break;
+            }
+        }
+        count.increment();
+        checkForResize();
+        return null;
+    }
+
+    /**
+     * Removes the mapping for a key from this map if it is present.
+     * @param key the key whose mapping is to be removed from the map
+     * @return the previous value associated with key, or null if there was no
+     *         mapping for key
+     */
+    @Override
+    public V remove(K key) {
+        int h = spread(key.hashCode());
+        AtomicReferenceArray<HashNode<K, V>> tab = table;
+        while (true) {
+            int index = h & (tab.length() - 1);
+            HashNode<K, V> first = tab.get(index);
+            if (first == null) {
+                return null;
+            }
+            if (first.hash == MOVED) {
+                Resize<K, V> r = ((ForwardingNode<K, V>)first).resize;
+                helpResize(r);
+                tab = r.newTable;
+                continue;
+            }
+            synchronized (first) {
+                if (tab.get(index) != first) {
+                    continue;       // the bin changed before we locked it
+                }
+                HashNode<K, V> prev = null, e = first;
+                while (e != null) {
+                    if (e.hash == h && key.equals(e.key)) {
+                        if (prev == null) {
+                            tab.set(index, e.next);
+                        } else {
+                            prev.next = e.next;
+                        }
+                        count.decrement();
+                        return e.value;
+                    }
+                    prev = e;
+                    e = e.next;
+                }
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Starts or helps with a resize if the map has grown past 3/4 of its
+     * capacity.
+     */
+    private void checkForResize() {
+        AtomicReferenceArray<HashNode<K, V>> tab = table;
+        int n = tab.length();
+        if (count.sum() <= n - (n >>> 2) || n >= MAX_CAPACITY) {
+            return;
+        }
+        Resize<K, V> r = resize;
+        if (r == null) {
+            synchronized (resizeLock) {
+                // Only start a resize for the table we looked at. If another
+                // thread has already grown it, there is nothing to do.
+                if (resize != null || table != tab) {
+                    return;
+                }
+                r = new Resize<>(tab);
+                resize = r;
+            }
+        }
+        helpResize(r);
+    }
+
+    /**
+     * Claims strides of bins from the given resize and moves them until no
+     * bins are left to claim. The thread that moves the last bin installs the
+     * new table.
+     * @param r the resize to help with
+     */
+    private void helpResize(Resize<K, V> r) {
+        int n = r.oldTable.length();
+        int start;
+        while ((start = r.nextBin.getAndAdd(TRANSFER_STRIDE)) < n) {
+            int end = Math.min(start + TRANSFER_STRIDE, n);
+            for (int i = start; i < end; i++) {
+                moveBin(r, i);
+            }
+            if (r.movedBins.addAndGet(end - start) == n) {
+                table = r.newTable;
+                resize = null;
+            }
+        }
+    }
+
+    /**
+     * Moves bin i of the old table into bins i and i + n of the new table,
+     * then replaces it with the forwarding node. The nodes are copied, so
+     * readers still walking the old chain are not disturbed.
+     */
+    private void moveBin(Resize<K, V> r, int i) {
+        AtomicReferenceArray<HashNode<K, V>> oldTab = r.oldTable;
+        int n = oldTab.length();
+        while (true) {
+            HashNode<K, V> first = oldTab.get(i);
+            if (first == null) {
+                if (oldTab.compareAndSet(i, null, r.forwardingNode)) {
+                    return;
+                }
+                continue;
+            }
+            synchronized (first) {
+                if (oldTab.get(i) != first) {
+                    continue;
+                }
+                HashNode<K, V> low = null, high = null;
+                for (HashNode<K, V> e = first; e != null; e = e.next) {
+                    if ((e.hash & n) == 0) {
+                        low = new HashNode<>(e.hash, e.key, e.value, low);
+                    } else {
+                        high = new HashNode<>(e.hash, e.key, e.value, high);
+                    }
+                }
+                r.newTable.set(i, low);
+                r.newTable.set(i + n, high);
+                oldTab.set(i, r.forwardingNode);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Spreads the higher bits of the hash code into the lower ones, which are
+     * the only bits used to pick a bin, and clears the sign bit.
+     */
+    private static int spread(int h) {
+        return (h ^ (h >>> 16)) & 0x7fffffff;
+    }
+
+    /**
+     * Returns a weakly consistent iterator over the mappings in this map.
+     * Each call to next() returns a new Entry holding the key and the value
+     * it had when it was visited.
+     * @return an iterator over the mappings in this map
+     */
+    public Iterator<Entry<K, V>> iterator() {
+        return new MapItr();
+    }
+
+    private class MapItr implements Iterator<Entry<K, V>> {
+        private final AtomicReferenceArray<HashNode<K, V>> baseTable = table;
+        private int baseIndex;
+        // Bins of newer tables still to visit, in place of forwarded bins.
+        private final ArrayDeque<AtomicReferenceArray<HashNode<K, V>>> pendingTables =
+                new ArrayDeque<>();
+        private final ArrayDeque<Integer> pendingIndexes = new ArrayDeque<>();
+        private HashNode<K, V> current;
+
+        MapItr() {
+            advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return current != null;
+        }
+
+        @Override
+        public Entry<K, V> next() {
+            if (current == null) {
+                throw new NoSuchElementException();
+            }
+            Entry<K, V> e = new Entry<>(current.key, current.value);
+            current = current.next;
+            if (current == null) {
+                advance();
+            }
+            return e;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        /**
+         * Moves to the first node of the next non-empty bin. A forwarded bin
+         * i is replaced by bins i and i + n of the table it was moved to.
+         */
+        private void advance() {
+            while (true) {
+                AtomicReferenceArray<HashNode<K, V>> tab;
+                int index;
+                if (!pendingTables.isEmpty()) {
+                    tab = pendingTables.pop();
+                    index = pendingIndexes.pop();
+                } else if (baseIndex < baseTable.length()) {
+                    tab = baseTable;
+                    index = baseIndex++;
+                } else {
+                    current = null;
+                    return;
+                }
+                HashNode<K, V> first = tab.get(index);
+                if (first == null) {
+                    continue;
+                }
+                if (first.hash == MOVED) {
+                    AtomicReferenceArray<HashNode<K, V>> newTab =
+                            ((ForwardingNode<K, V>)first).resize.newTable;
+                    pendingTables.push(newTab);
+                    pendingIndexes.push(index + tab.length());
+                    pendingTables.push(newTab);
+                    pendingIndexes.push(index);
+                    continue;
+                }
+                current = first;
+                return;
+            }
+        }
+    }
+
+    /**
+     * MyHashMap behind a single lock, the baseline for the benchmark.
+     */
+    private static class SynchronizedMap<K extends Comparable<K>, V>
+            implements MyMap<K, V> {
+        private final MyHashMap<K, V> map = new MyHashMap<>();
+
+        public synchronized int size() {
+            return map.size();
+        }
+
+        public synchronized boolean isEmpty() {
+            return map.isEmpty();
+        }
+
+        public synchronized V get(K key) {
+            return map.get(key);
+        }
+
+        public synchronized V put(K key, V value) {
+            return map.put(key, value);
+        }
+
+        public synchronized V remove(K key) {
+            return map.remove(key);
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        ConcurrentMyHashMap<Integer, Integer> map = new ConcurrentMyHashMap<>();
+        int threads = Runtime.getRuntime().availableProcessors();
+        int perThread = 100000;
+
+        // Each thread puts its own range of keys while the table grows.
+        ThreadBench.runThreads(threads, t -> {
+            for (int i = t * perThread; i < (t + 1) * perThread; i++) {
+                map.put(i, i);
+            }
+        });
+        System.out.println("Threads         : " + threads);
+        System.out.println("Size            : " + map.size());
+        System.out.println("Expected size   : " + threads * perThread);
+        System.out.println("Table size      : " + map.getTableSize());
+        long expectedSum = 0, receivedSum = 0;
+        for (int i = 0; i < threads * perThread; i++) {
+            expectedSum += i;
+            receivedSum += map.get(i);
+        }
+        System.out.println("Expected sum: " + expectedSum);
+        System.out.println("Received sum: " + receivedSum);
+        receivedSum = 0;
+        Iterator<Entry<Integer, Integer>> iter = map.iterator();
+        while (iter.hasNext()) {
+            receivedSum += iter.next().value;
+        }
+        System.out.println("Received sum: " + receivedSum);
+
+        // Each thread removes the even keys of its range.
+        ThreadBench.runThreads(threads, t -> {
+            for (int i = t * perThread; i < (t + 1) * perThread; i += 2) {
+                map.remove(i);
+            }
+        });
+        System.out.println("Size            : " + map.size());
+        System.out.println("Expected size   : " + threads * perThread / 2);
+        System.out.println();
+
+        benchmarkThroughput();
+    }
+
+    /**
+     * Compares the throughput of a 90% get / 10% put workload on
+     * ConcurrentMyHashMap and on a MyHashMap behind a single lock, for an
+     * increasing number of threads.
+     */
+    private static void benchmarkThroughput() throws InterruptedException {
+        int maxThreads = Math.max(4, Runtime.getRuntime().availableProcessors());
+        int keyRange = 100000, opsPerThread = 2000000;
+        System.out.println("Threads   global lock (Mops/s)   concurrent (Mops/s)");
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            double[] throughput = new double[2];
+            for (int kind = 0; kind < 2; kind++) {
+                MyMap<Integer, Integer> map = kind == 0
+                        ? new SynchronizedMap<>() : new ConcurrentMyHashMap<>();
+                for (int i = 0; i < keyRange; i++) {
+                    map.put(i, i);
+                }
+                long start = System.nanoTime();
+                ThreadBench.runThreads(threads, t -> {
+                    Random random = new Random(t);
+                    for (int i = 0; i < opsPerThread; i++) {
+                        Integer key = random.nextInt(keyRange);
+                        if (random.nextInt(10) == 0) {
+                            map.put(key, i);
+                        } else {
+                            map.get(key);
+                        }
+                    }
+                });
+                long time = System.nanoTime() - start;
+                throughput[kind] = (double)threads * opsPerThread / time * 1e3;
+            }
+            System.out.printf("%7d %22.2f %21.2f\n", threads, throughput[0],
+                              throughput[1]);
+        }
+    }
+}
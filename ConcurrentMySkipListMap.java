@@ -0,0 +1,709 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+/**
+ * Class for a thread-safe sorted map, built as a lock-free skip list. Each
+ * node is linked into the bottom level and, with probability 1/2 per level,
+ * into the levels above it, so a search skips over most nodes and takes
+ * O(log n) expected steps. No operation takes a lock.
+ * <p>
+ * A mapping is removed in two steps. First its value is set to null with a
+ * compare-and-set, which is the moment the mapping disappears. Then its links
+ * are marked from the top level down, and any search that meets a marked link
+ * unlinks the node. A put that replaces a value also uses compare-and-set,
+ * so it either wins before the removal or retries after it.
+ * <p>
+ * A node is a single object and its array of links. The value and the links
+ * are changed with compare-and-set through VarHandles, so a search follows
+ * one array per hop. Searches start at the highest level any node uses,
+ * rather than at MAX_LEVEL.
+ * <p>
+ * Iterators, range views and the navigable operations are weakly
+ * consistent. They never throw ConcurrentModificationException, and may or
+ * may not reflect changes made while they run.
+ * @author Fengzhe Liu (fl2635)
+ * @version 1.0 October 18, 2026
+ */
+public class ConcurrentMySkipListMap<K extends Comparable<K>, V>
+        implements MyMap<K, V> {
+    private static final int MAX_LEVEL = 32;
+    private static final VarHandle MAX_LEVEL_IN_USE;
+
+    static {
+        try {
+            MAX_LEVEL_IN_USE = MethodHandles.lookup().findVarHandle(
+                    ConcurrentMySkipListMap.class, "maxLevelInUse", int.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    // Sentinel before the first node, linked into every level.
+    private final SkipNode<K, V> head =
+            new SkipNode<>(null, null, MAX_LEVEL - 1);
+    private final LongAdder count = new LongAdder();
+    // The highest level of any node ever linked. Only ever raised.
+    private volatile int maxLevelInUse;
+
+    private static final class SkipNode<K, V> {
+        private static final VarHandle VALUE;
+        private static final VarHandle LINK =
+                MethodHandles.arrayElementVarHandle(Object[].class);
+
+        static {
+            try {
+                VALUE = MethodHandles.lookup().findVarHandle(
+                        SkipNode.class, "value", Object.class);
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        final K key;
+        // null once the mapping has been removed.
+        volatile V value;
+        // The link at each level: the next SkipNode, or a Marker holding it
+        // once this node has been deleted. A marked link is never changed.
+        final Object[] links;
+        final int topLevel;
+
+        SkipNode(K key, V value, int topLevel) {
+            this.key = key;
+            this.value = value;
+            this.topLevel = topLevel;
+            links = new Object[topLevel + 1];
+        }
+
+        /**
+         * Returns the link at level, as of the latest change to it.
+         */
+        Object link(int level) {
+            return LINK.getAcquire(links, level);
+        }
+
+        SkipNode<K, V> next(int level) {
+            return nodeOf(link(level));
+        }
+
+        boolean casValue(V expected, V update) {
+            return VALUE.compareAndSet(this, expected, update);
+        }
+
+        /**
+         * Sets the link at level from expected to update if it is unmarked
+         * and still points to expected.
+         */
+        boolean casNext(int level, SkipNode<K, V> expected,
+                        SkipNode<K, V> update) {
+            // Passed as Objects to match the VarHandle's exact type.
+            return LINK.compareAndSet(links, level, (Object)expected,
+                                      (Object)update);
+        }
+
+        /**
+         * Marks the link at level if it is not marked already.
+         */
+        void mark(int level) {
+            while (true) {
+                Object link = link(level);
+                if (link instanceof Marker
+                    || LINK.compareAndSet(links, level, link,
+                                          (Object)new Marker(link))) {
+                    return;
+                }
+            }
+        }
+
+        boolean isLive() {
+            return value != null && !(link(0) instanceof Marker);
+        }
+    }
+
+    /**
+     * Replaces the link of a deleted node, so that the link can no longer be
+     * changed with compareAndSet.
+     */
+    private static final class Marker {
+        final Object next;
+
+        Marker(Object next) {
+            this.next = next;
+        }
+    }
+
+    /**
+     * Returns the node a link points to, whether or not it is marked.
+     */
+    @SuppressWarnings("unchecked")
+    private static <K, V> SkipNode<K, V> nodeOf(Object link) {
+        return (SkipNode<K, V>)(link instanceof Marker ? ((Marker)link).next
+                                                       : link);
+    }
+
+    /**
+     * Returns the number of key-value mappings in this map. The result is
+     * only an estimate while other threads are writing.
+     * @return the number of key-value mappings in this map
+     */
+    @Override
+    public int size() {
+        return (int)count.sum();
+    }
+
+    /**
+     * Returns true if this map contains no key-value mappings.
+     * @return true if this map contains no key-value mappings
+     */
+    @Override
+    public boolean isEmpty() {
+        return firstLive() == null;
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or null if this
+     * map contains no mapping for the key. Never writes and never retries.
+     * @param  key the key whose associated value is to be returned
+     * @return the value to which the specified key is mapped, or null if this
+     *         map contains no mapping for the key
+     */
+    @Override
+    public V get(K key) {
+        // bound is the node that ended the search on the level above, whose
+        // key is known to be greater, so it is not compared again. Deleted
+        // nodes are passed through like any other: their links are frozen
+        // but still lead forward, and their value is already null.
+        SkipNode<K, V> pred = head, bound = null;
+        for (int level = maxLevelInUse; level >= 0; level--) {
+            SkipNode<K, V> curr = pred.next(level);
+            while (curr != null && curr != bound) {
+                int comparison = curr.key.compareTo(key);
+                if (comparison == 0) {
+                    return curr.value;
+                } else if (comparison > 0) {
+                    bound = curr;
+                    break;
+                }
+                pred = curr;
+                curr = curr.next(level);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Associates the specified value with the specified key in this map. If the
+     * map previously contained a mapping for the key, the old value is replaced
+     * by the specified value.
+     * @param key   the key with which the specified value is to be associated
+     * @param value the value to be associated with the specified key
+     * @return the previous value associated with key, or null if there was no
+     *         mapping for key
+     * @throws NullPointerException if the value is null
+     */
+    @Override
+    public V put(K key, V value) {
+        if (value == null) {
+            throw new NullPointerException("Null values are not supported.");
+        }
+        int topLevel = randomLevel();
+        raiseMaxLevelInUse(topLevel);
+        SkipNode<K, V>[] preds = newNodeArray(topLevel + 1);
+        SkipNode<K, V>[] succs = newNodeArray(topLevel + 1);
+        SkipNode<K, V> node = null;
+        while (true) {
+            SkipNode<K, V> existing = find(key, preds, succs);
+            if (existing != null && existing.key.compareTo(key) == 0) {
+                V oldValue = existing.value;
+                if (oldValue == null) {
+                    markLinks(existing);    // help finish its removal
+                } else if (existing.casValue(oldValue, value)) {
+                    return oldValue;
+                }
+                continue;
+            }
+            if (node == null) {
+                node = new SkipNode<>(key, value, topLevel);
+            }
+            // The node is not yet reachable, so plain writes will do; the
+            // compare-and-set below publishes them.
+            System.arraycopy(succs, 0, node.links, 0, topLevel + 1);
+            // Linking the bottom level is what adds the mapping.
+            if (preds[0].casNext(0, succs[0], node)) {
+                break;
+            }
+        }
+        count.increment();
+        linkUpperLevels(node, preds, succs);
+        return null;
+    }
+
+    /**
+     * Raises maxLevelInUse to level, if it is lower, so that searches start
+     * high enough to see every level of a node about to be linked.
+     */
+    private void raiseMaxLevelInUse(int level) {
+        int current;
+        while ((current = maxLevelInUse) < level
+               && !MAX_LEVEL_IN_USE.compareAndSet(this, current, level)) {
+            // another put raised it first; look again
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K, V> SkipNode<K, V>[] newNodeArray(int length) {
+        return (SkipNode<K, V>[])new SkipNode<?, ?>[length];
+    }
+
+    /**
+     * Links a node that is already in the bottom level into its other levels,
+     * stopping early if the node is removed in the meantime.
+     */
+    @SuppressWarnings("unchecked")
+    private void linkUpperLevels(SkipNode<K, V> node, SkipNode<K, V>[] preds,
+                                 SkipNode<K, V>[] succs) {
+        for (int level = 1; level <= node.topLevel; level++) {
+            while (true) {
+                SkipNode<K, V> succ = succs[level];
+                Object next = node.link(level);
+                if (next instanceof Marker) {
+                    return;
+                }
+                // Point the node at its successor, then its predecessor at it.
+                if ((next == succ
+                     || node.casNext(level, (SkipNode<K, V>)next, succ))
+                    && preds[level].casNext(level, succ, node)) {
+                    break;
+                }
+                find(node.key, preds, succs);
+            }
+        }
+    }
+
+    /**
+     * Removes the mapping for a key from this map if it is present.
+     * @param key key whose mapping is to be removed from the map
+     * @return the previous value associated with key, or null if there was no
+     *         mapping for key
+     */
+    @Override
+    public V remove(K key) {
+        while (true) {
+            SkipNode<K, V> node = find(key, null, null);
+            if (node == null || node.key.compareTo(key) != 0) {
+                return null;
+            }
+            V oldValue = node.value;
+            if (oldValue == null) {
+                markLinks(node);            // removed by another thread
+            } else if (node.casValue(oldValue, null)) {
+                count.decrement();
+                markLinks(node);
+                find(key, null, null);      // unlink it
+                return oldValue;
+            }
+        }
+    }
+
+    /**
+     * Marks every link of a removed node, top level first, so that searches
+     * unlink it. Safe to call from any number of threads at once.
+     */
+    private void markLinks(SkipNode<K, V> node) {
+        for (int level = node.topLevel; level >= 0; level--) {
+            node.mark(level);
+        }
+    }
+
+    /**
+     * Returns the first node with a key greater than or equal to the given
+     * key, or null if there is none, unlinking marked nodes on the way. If
+     * preds and succs are not null, fills them with, at each of their levels,
+     * the last node with a smaller key and the node after it.
+     */
+    private SkipNode<K, V> find(K key, SkipNode<K, V>[] preds,
+                                SkipNode<K, V>[] succs) {
+        retry:
+        while (true) {
+            SkipNode<K, V> pred = head, curr = null;
+            for (int level = maxLevelInUse; level >= 0; level--) {
+                curr = pred.next(level);
+                while (curr != null) {
+                    Object link = curr.link(level);
+                    SkipNode<K, V> succ = nodeOf(link);
+                    if (link instanceof Marker) {
+                        if (!pred.casNext(level, curr, succ)) {
+                            continue retry;     // pred changed under us
+                        }
+                        curr = succ;
+                    } else if (curr.key.compareTo(key) < 0) {
+                        pred = curr;
+                        curr = succ;
+                    } else {
+                        break;
+                    }
+                }
+                if (preds != null && level < preds.length) {
+                    preds[level] = pred;
+                    succs[level] = curr;
+                }
+            }
+            return curr;
+        }
+    }
+
+    /**
+     * Returns a random level from 0 to MAX_LEVEL - 1, where level i has
+     * probability 1 / 2^(i + 1).
+     */
+    private static int randomLevel() {
+        int bits = ThreadLocalRandom.current().nextInt();
+        return Math.min(Integer.numberOfTrailingZeros(~bits), MAX_LEVEL - 1);
+    }
+
+    /**
+     * Returns the least key in this map, or null if the map is empty.
+     * @return the least key in this map, or null if the map is empty
+     */
+    public K firstKey() {
+        return keyOf(firstLive());
+    }
+
+    /**
+     * Returns the greatest key in this map, or null if the map is empty.
+     * @return the greatest key in this map, or null if the map is empty
+     */
+    public K lastKey() {
+        return keyOf(findBefore(null, false));
+    }
+
+    /**
+     * Returns the greatest key less than or equal to the given key, or null
+     * if there is no such key.
+     * @param key the key to search for
+     * @return the greatest key less than or equal to key, or null
+     */
+    public K floor(K key) {
+        return keyOf(findBefore(key, true));
+    }
+
+    /**
+     * Returns the least key greater than or equal to the given key, or null
+     * if there is no such key.
+     * @param key the key to search for
+     * @return the least key greater than or equal to key, or null
+     */
+    public K ceiling(K key) {
+        return keyOf(findAfter(key, true));
+    }
+
+    /**
+     * Returns the greatest key strictly less than the given key, or null if
+     * there is no such key.
+     * @param key the key to search for
+     * @return the greatest key less than key, or null
+     */
+    public K lowerKey(K key) {
+        return keyOf(findBefore(key, false));
+    }
+
+    /**
+     * Returns the least key strictly greater than the given key, or null if
+     * there is no such key.
+     * @param key the key to search for
+     * @return the least key greater than key, or null
+     */
+    public K higherKey(K key) {
+        return keyOf(findAfter(key, false));
+    }
+
+    private K keyOf(SkipNode<K, V> n) {
+        return n == null ? null : n.key;
+    }
+
+    private SkipNode<K, V> firstLive() {
+        return nextLive(head.next(0));
+    }
+
+    /**
+     * Returns n or the first live node after it on the bottom level.
+     */
+    private SkipNode<K, V> nextLive(SkipNode<K, V> n) {
+        while (n != null && !n.isLive()) {
+            n = n.next(0);
+        }
+        return n;
+    }
+
+    /**
+     * Returns the first live node with a key greater than (or, if inclusive,
+     * equal to) the given key, or null if there is none.
+     */
+    private SkipNode<K, V> findAfter(K key, boolean inclusive) {
+        SkipNode<K, V> n = find(key, null, null);
+        if (n != null && !inclusive && n.key.compareTo(key) == 0) {
+            n = n.next(0);
+        }
+        return nextLive(n);
+    }
+
+    /**
+     * Returns the last live node with a key less than (or, if inclusive,
+     * equal to) the given key, or null if there is none. A null key stands
+     * for a key greater than all others.
+     */
+    private SkipNode<K, V> findBefore(K key, boolean inclusive) {
+        while (true) {
+            SkipNode<K, V> pred = head;
+            for (int level = maxLevelInUse; level >= 0; level--) {
+                SkipNode<K, V> curr = pred.next(level);
+                while (curr != null && (key == null
+                                        || curr.key.compareTo(key) < 0
+                                        || inclusive
+                                           && curr.key.compareTo(key) == 0)) {
+                    pred = curr;
+                    curr = curr.next(level);
+                }
+            }
+            if (pred == head || pred.isLive()) {
+                return pred == head ? null : pred;
+            }
+            key = pred.key;         // it was removed: look before it
+            inclusive = false;
+        }
+    }
+
+    /**
+     * Returns a weakly consistent view of the mappings whose keys range from
+     * fromKey, inclusive, to toKey, exclusive. It can only be iterated.
+     * @param fromKey the low endpoint of the keys in the view, inclusive
+     * @param toKey   the high endpoint of the keys in the view, exclusive
+     * @return a view of the mappings from fromKey up to toKey
+     * @throws IllegalArgumentException if fromKey is greater than toKey
+     */
+    public Iterable<Entry<K, V>> subMap(K fromKey, K toKey) {
+        if (fromKey.compareTo(toKey) > 0) {
+            throw new IllegalArgumentException("fromKey > toKey");
+        }
+        return () -> new MapItr(fromKey, toKey);
+    }
+
+    /**
+     * Returns a weakly consistent view of the mappings whose keys are
+     * strictly less than toKey. It can only be iterated.
+     * @param toKey the high endpoint of the keys in the view, exclusive
+     * @return a view of the mappings below toKey
+     */
+    public Iterable<Entry<K, V>> headMap(K toKey) {
+        return () -> new MapItr(null, toKey);
+    }
+
+    /**
+     * Returns a weakly consistent view of the mappings whose keys are
+     * greater than or equal to fromKey. It can only be iterated.
+     * @param fromKey the low endpoint of the keys in the view, inclusive
+     * @return a view of the mappings from fromKey up
+     */
+    public Iterable<Entry<K, V>> tailMap(K fromKey) {
+        return () -> new MapItr(fromKey, null);
+    }
+
+    /**
+     * Returns a weakly consistent iterator over the mappings in this map in
+     * ascending key order.
+     * @return an iterator over the mappings in this map
+     */
+    public Iterator<Entry<K, V>> iterator() {
+        return new MapItr(null, null);
+    }
+
+    /**
+     * Performs the given action on each mapping in this map in ascending key
+     * order. Weakly consistent, like iterator().
+     * @param action the action to be performed on each key and value
+     */
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        for (SkipNode<K, V> n = firstLive(); n != null;
+             n = nextLive(n.next(0))) {
+            V value = n.value;
+            if (value != null) {
+                action.accept(n.key, value);
+            }
+        }
+    }
+
+    private class MapItr implements Iterator<Entry<K, V>> {
+        private final K toKey;
+        private SkipNode<K, V> next;
+        private V nextValue;
+
+        MapItr(K fromKey, K toKey) {
+            this.toKey = toKey;
+            advance(fromKey == null ? firstLive() : findAfter(fromKey, true));
+        }
+
+        /**
+         * Moves to n or the first live node in range after it, and takes its
+         * value at that moment.
+         */
+        private void advance(SkipNode<K, V> n) {
+            for (n = nextLive(n); n != null;
+                 n = nextLive(n.next(0))) {
+                if (toKey != null && n.key.compareTo(toKey) >= 0) {
+                    break;
+                }
+                nextValue = n.value;
+                if (nextValue != null) {
+                    next = n;
+                    return;
+                }
+            }
+            next = null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Entry<K, V> next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            Entry<K, V> e = new Entry<>(next.key, nextValue);
+            advance(next.next(0));
+            return e;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * A BSTMap that takes its lock for every operation, for comparison.
+     */
+    private static class SynchronizedBSTMap<K extends Comparable<K>, V>
+            extends BSTMap<K, V> {
+        @Override
+        public synchronized V get(K key) {
+            return super.get(key);
+        }
+
+        @Override
+        public synchronized V put(K key, V value) {
+            return super.put(key, value);
+        }
+
+        @Override
+        public synchronized V remove(K key) {
+            return super.remove(key);
+        }
+
+        @Override
+        public synchronized K ceiling(K key) {
+            return super.ceiling(key);
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        ConcurrentMySkipListMap<Integer, Integer> map =
+                new ConcurrentMySkipListMap<>();
+        int threads = 4, perThread = 25000;
+        ThreadBench.runThreads(threads, t -> {
+            for (int i = t * perThread; i < (t + 1) * perThread; i++) {
+                map.put(i, i);
+            }
+        });
+        System.out.println("Threads         : " + threads);
+        System.out.println("Size            : " + map.size());
+        System.out.println("Expected size   : " + threads * perThread);
+        long expectedSum = 0, receivedSum = 0;
+        for (int i = 0; i < threads * perThread; i++) {
+            expectedSum += i;
+            receivedSum += map.get(i);
+        }
+        System.out.println("Expected sum: " + expectedSum);
+        System.out.println("Received sum: " + receivedSum);
+
+        // Each thread removes the even keys of its range.
+        ThreadBench.runThreads(threads, t -> {
+            for (int i = t * perThread; i < (t + 1) * perThread; i += 2) {
+                map.remove(i);
+            }
+        });
+        System.out.println("Size            : " + map.size());
+        System.out.println("Expected size   : " + threads * perThread / 2);
+        System.out.println("firstKey, lastKey: " + map.firstKey() + ", "
+                           + map.lastKey());
+        System.out.println("floor(100), ceiling(100): " + map.floor(100)
+                           + ", " + map.ceiling(100));
+        System.out.print("subMap(10, 20)  :");
+        for (Entry<Integer, Integer> e : map.subMap(10, 20)) {
+            System.out.print(" " + e.key);
+        }
+        System.out.println();
+        System.out.println();
+
+        benchmarkThroughput();
+    }
+
+    /**
+     * Compares the throughput of a workload of 70% get, 10% ceiling, 10% put
+     * and 10% remove on ConcurrentMySkipListMap and on a synchronized BSTMap,
+     * for an increasing number of threads.
+     */
+    private static void benchmarkThroughput() throws InterruptedException {
+        int maxThreads =
+                Math.max(4, Runtime.getRuntime().availableProcessors());
+        int keyRange = 100000, opsPerThread = 1000000;
+        System.out.println("Threads   synchronized BSTMap (Mops/s)   "
+                           + "skip list (Mops/s)");
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            double[] throughput = new double[2];
+            for (int kind = 0; kind < 2; kind++) {
+                MyMap<Integer, Integer> map = kind == 0
+                        ? new SynchronizedBSTMap<>()
+                        : new ConcurrentMySkipListMap<>();
+                Random random = new Random(42);
+                for (int i = 0; i < keyRange / 2; i++) {
+                    map.put(random.nextInt(keyRange), i);
+                }
+                long start = System.nanoTime();
+                ThreadBench.runThreads(threads, t -> {
+                    Random r = new Random(t);
+                    for (int i = 0; i < opsPerThread; i++) {
+                        Integer key = r.nextInt(keyRange);
+                        int op = r.nextInt(10);
+                        if (op == 0) {
+                            map.put(key, i);
+                        } else if (op == 1) {
+                            map.remove(key);
+                        } else if (op == 2) {
+                            ceiling(map, key);
+                        } else {
+                            map.get(key);
+                        }
+                    }
+                });
+                long time = System.nanoTime() - start;
+                throughput[kind] = (double)threads * opsPerThread / time * 1e3;
+            }
+            System.out.printf("%7d %30.2f %20.2f\n", threads, throughput[0],
+                              throughput[1]);
+        }
+    }
+
+    private static Integer ceiling(MyMap<Integer, Integer> map, Integer key) {
+        return map instanceof BSTMap
+               ? ((BSTMap<Integer, Integer>)map).ceiling(key)
+               : ((ConcurrentMySkipListMap<Integer, Integer>)map).ceiling(key);
+    }
+}
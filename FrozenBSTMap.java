@@ -0,0 +1,288 @@
+import java.util.Random;
+
+/**
+ * Class for a read-only map made from a BSTMap. The mappings are copied into
+ * arrays in Eytzinger order: the root of a perfectly balanced tree is at
+ * index 1 and the children of index k are at 2k and 2k + 1. A search is a
+ * loop over one array, with no Node objects to chase, and the first levels
+ * of the tree share a few cache lines that stay in cache between lookups.
+ * Each step picks the next index arithmetically instead of branching, so the
+ * JIT can compile it without a hard-to-predict branch.
+ * <p>
+ * If every key is an Integer, the keys are also kept in an int array and
+ * searched without touching the Integer objects at all. If every key is a
+ * String, each key is also kept as a long that packs the eight characters
+ * after the prefix all the keys share, one byte each, in an order that
+ * agrees with compareTo. The search compares those longs, and reads the
+ * Strings only when two of them are equal. Keys of other types are compared
+ * with compareTo at every step, and gain only from the layout.
+ * @author Fengzhe Liu (fl2635)
+ * @version 1.0 October 18, 2026
+ */
+public class FrozenBSTMap<K extends Comparable<K>, V> implements MyMap<K, V> {
+    private final int size;
+    // Index 0 is unused so that the children of k are at 2k and 2k + 1.
+    private final Object[] keys, values;
+    // The keys as ints in the same order, or null if not all are Integers.
+    private final int[] intKeys;
+    // If all keys are Strings, the prefix they share, and their packed
+    // characters after it in the same order; otherwise null.
+    private final String commonPrefix;
+    private final long[] stringPrefixes;
+
+    /**
+     * Creates a read-only copy of the given map. Later changes to the map do
+     * not show in the copy.
+     * @param map the map to copy
+     */
+    public FrozenBSTMap(BSTMap<K, V> map) {
+        size = map.size();
+        Object[] sortedKeys = new Object[size], sortedValues = new Object[size];
+        boolean[] allInts = {true}, allStrings = {true};
+        int[] i = {0};
+        map.forEach((key, value) -> {
+            sortedKeys[i[0]] = key;
+            sortedValues[i[0]] = value;
+            allInts[0] &= key instanceof Integer;
+            allStrings[0] &= key instanceof String;
+            i[0]++;
+        });
+        keys = new Object[size + 1];
+        values = new Object[size + 1];
+        fill(sortedKeys, sortedValues, 0, 1);
+        if (allInts[0] && size > 0) {
+            intKeys = new int[size + 1];
+            for (int k = 1; k <= size; k++) {
+                intKeys[k] = (Integer)keys[k];
+            }
+        } else {
+            intKeys = null;
+        }
+        if (allStrings[0] && size > 0) {
+            // The keys are sorted, so the first and last share the least.
+            String first = (String)sortedKeys[0];
+            String last = (String)sortedKeys[size - 1];
+            int length = 0;
+            while (length < first.length()
+                    && first.charAt(length) == last.charAt(length)) {
+                length++;
+            }
+            commonPrefix = first.substring(0, length);
+            stringPrefixes = new long[size + 1];
+            for (int k = 1; k <= size; k++) {
+                stringPrefixes[k] = pack((String)keys[k], length);
+            }
+        } else {
+            commonPrefix = null;
+            stringPrefixes = null;
+        }
+    }
+
+    /**
+     * Packs the eight characters of s from index from onwards into a long,
+     * one byte each, most significant first. A character c below 254 becomes
+     * c + 1, and a character past the end of s becomes 0. Any greater
+     * character becomes 255 and ends the packing, since the characters after
+     * it would no longer be compared in the right order. Then if
+     * pack(a) < pack(b) as unsigned longs, a < b. Equal packs say nothing,
+     * and the Strings must be compared.
+     * @param s    the String to pack
+     * @param from the index of the first character to pack
+     * @return the packed characters
+     */
+    private static long pack(String s, int from) {
+        long packed = 0;
+        boolean ended = false;
+        for (int j = from; j < from + 8; j++) {
+            int c = 0;
+            if (!ended && j < s.length()) {
+                ended = s.charAt(j) >= 254;
+                c = ended ? 255 : s.charAt(j) + 1;
+            }
+            packed = packed << 8 | c;
+        }
+        return packed;
+    }
+
+    /**
+     * Places the sorted mappings from index next onwards into the subtree
+     * rooted at Eytzinger index k, in order.
+     * @return the index of the first sorted mapping not yet placed
+     */
+    private int fill(Object[] sortedKeys, Object[] sortedValues, int next,
+                     int k) {
+        if (k <= size) {
+            next = fill(sortedKeys, sortedValues, next, 2 * k);
+            keys[k] = sortedKeys[next];
+            values[k] = sortedValues[next];
+            next = fill(sortedKeys, sortedValues, next + 1, 2 * k + 1);
+        }
+        return next;
+    }
+
+    /**
+     * Returns the number of key-value mappings in this map.
+     * @return the number of key-value mappings in this map
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns true if this map contains no key-value mappings.
+     * @return true if this map contains no key-value mappings
+     */
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or null if this
+     * map contains no mapping for the key.
+     * @param  key the key whose associated value is to be returned
+     * @return the value to which the specified key is mapped, or null if this
+     *         map contains no mapping for the key
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(K key) {
+        if (intKeys != null) {
+            int intKey = (Integer)key;
+            int k = lowerBound(intKey);
+            return k != 0 && intKeys[k] == intKey ? (V)values[k] : null;
+        }
+        if (stringPrefixes != null) {
+            String stringKey = (String)key;
+            if (!stringKey.startsWith(commonPrefix)) {
+                return null;
+            }
+            int k = lowerBound(stringKey,
+                               pack(stringKey, commonPrefix.length()));
+            return k != 0 && stringKey.equals(keys[k]) ? (V)values[k] : null;
+        }
+        int k = lowerBound(key);
+        return k != 0 && key.compareTo((K)keys[k]) == 0 ? (V)values[k] : null;
+    }
+
+    /**
+     * Returns the index of the least key greater than or equal to key, or 0
+     * if there is none. The descent goes right whenever key is greater, so
+     * it ends below that key's position; the trailing 1 bits of k count the
+     * right turns taken since then, and shifting them off leads back to it.
+     */
+    @SuppressWarnings("unchecked")
+    private int lowerBound(K key) {
+        int k = 1;
+        while (k <= size) {
+            k = 2 * k + (key.compareTo((K)keys[k]) > 0 ? 1 : 0);
+        }
+        return k >>> (Integer.numberOfTrailingZeros(~k) + 1);
+    }
+
+    private int lowerBound(int key) {
+        int[] a = intKeys;
+        int k = 1;
+        while (k <= size) {
+            k = 2 * k + (key > a[k] ? 1 : 0);
+        }
+        return k >>> (Integer.numberOfTrailingZeros(~k) + 1);
+    }
+
+    private int lowerBound(String key, long packed) {
+        long[] a = stringPrefixes;
+        int k = 1;
+        while (k <= size) {
+            int comparison = packed != a[k] ? Long.compareUnsigned(packed, a[k])
+                                            : key.compareTo((String)keys[k]);
+            k = 2 * k + (comparison > 0 ? 1 : 0);
+        }
+        return k >>> (Integer.numberOfTrailingZeros(~k) + 1);
+    }
+
+    /**
+     * Always throws, because this map is read-only.
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public V put(K key, V value) {
+        throw new UnsupportedOperationException("FrozenBSTMap is read-only.");
+    }
+
+    /**
+     * Always throws, because this map is read-only.
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public V remove(K key) {
+        throw new UnsupportedOperationException("FrozenBSTMap is read-only.");
+    }
+
+    /**
+     * Compares random lookups in a balanced BSTMap with lookups in a
+     * FrozenBSTMap made from it, for Integer keys and for String keys.
+     */
+    public static void main(String[] args) {
+        int n = 1000000;
+        @SuppressWarnings("unchecked")
+        Pair<Integer, Integer>[] intPairs = new Pair[n];
+        @SuppressWarnings("unchecked")
+        Pair<String, Integer>[] stringPairs = new Pair[n];
+        for (int i = 0; i < n; i++) {
+            intPairs[i] = new Pair<>(2 * i, i);
+            // Zero-padded, so the String order matches the numeric order.
+            stringPairs[i] = new Pair<>(String.format("key%08d", 2 * i), i);
+        }
+        BSTMap<Integer, Integer> intTree = new BSTMap<>(intPairs, true);
+        BSTMap<String, Integer> stringTree = new BSTMap<>(stringPairs, true);
+        FrozenBSTMap<Integer, Integer> frozenInts = new FrozenBSTMap<>(intTree);
+        FrozenBSTMap<String, Integer> frozenStrings =
+                new FrozenBSTMap<>(stringTree);
+
+        // Look up present and absent keys in random order.
+        int lookups = 2000000;
+        Integer[] intQueries = new Integer[lookups];
+        String[] stringQueries = new String[lookups];
+        Random random = new Random(42);
+        for (int i = 0; i < lookups; i++) {
+            int key = random.nextInt(2 * n);
+            intQueries[i] = key;
+            stringQueries[i] = String.format("key%08d", key);
+        }
+        System.out.println("Mappings: " + n + ", lookups: " + lookups);
+        for (int round = 0; round < 3; round++) {
+            long intTreeTime = timeLookups(intTree, intQueries);
+            long frozenIntTime = timeLookups(frozenInts, intQueries);
+            long stringTreeTime = timeLookups(stringTree, stringQueries);
+            long frozenStringTime = timeLookups(frozenStrings, stringQueries);
+            if (round == 2) {   // the first rounds warm up the JIT
+                System.out.printf("Integer keys: BSTMap %6.1f ns, "
+                                  + "FrozenBSTMap %6.1f ns\n",
+                                  (double)intTreeTime / lookups,
+                                  (double)frozenIntTime / lookups);
+                System.out.printf("String keys : BSTMap %6.1f ns, "
+                                  + "FrozenBSTMap %6.1f ns\n",
+                                  (double)stringTreeTime / lookups,
+                                  (double)frozenStringTime / lookups);
+            }
+        }
+    }
+
+    private static <K extends Comparable<K>> long timeLookups(
+            MyMap<K, Integer> map, K[] queries) {
+        long start = System.nanoTime();
+        long sum = 0;
+        for (K key : queries) {
+            Integer value = map.get(key);
+            if (value != null) {
+                sum += value;
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        if (sum == 42) {        // keep the JIT from dropping the lookups
+            System.out.println();
+        }
+        return elapsed;
+    }
+}
@@ -0,0 +1,402 @@
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+/**
+ * Class for a hash map from int keys to int values. Keys and values are kept
+ * in flat int arrays with linear probing, so get, put, remove and increment
+ * never box and never allocate (apart from growing the table). Key 0 marks an
+ * empty slot, so a mapping for key 0 is kept in separate fields.
+ * @author Fengzhe Liu (fl2635)
+ * @version 1.0 October 18, 2026
+ */
+public class IntIntMyHashMap {
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final int MAX_CAPACITY = 1 << 30;
+    private static final double MAX_LOAD_FACTOR = 0.5;
+    private static final int FREE_KEY = 0;
+    private int[] keys, values;
+    private int numEntries, maxEntries;
+    private boolean hasFreeKey;
+    private int freeKeyValue;
+    private final int noEntryValue;
+
+    /**
+     * Creates an empty map that returns 0 for keys it does not contain.
+     */
+    public IntIntMyHashMap() {
+        this(0);
+    }
+
+    /**
+     * Creates an empty map that returns noEntryValue for keys it does not
+     * contain.
+     * @param noEntryValue the value returned by get and remove for missing
+     *                     keys
+     */
+    public IntIntMyHashMap(int noEntryValue) {
+        this.noEntryValue = noEntryValue;
+        allocate(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Returns the value that get and remove return for missing keys.
+     * @return the value returned for missing keys
+     */
+    public int getNoEntryValue() {
+        return noEntryValue;
+    }
+
+    /**
+     * Returns the number of slots in this map.
+     * @return the number of slots in this map
+     */
+    public int getTableSize() {
+        return keys.length;
+    }
+
+    /**
+     * Returns the number of key-value mappings in this map.
+     * @return the number of key-value mappings in this map
+     */
+    public int size() {
+        return numEntries;
+    }
+
+    /**
+     * Returns true if this map contains no key-value mappings.
+     * @return true if this map contains no key-value mappings
+     */
+    public boolean isEmpty() {
+        return numEntries == 0;
+    }
+
+    /**
+     * Returns true if this map contains a mapping for the specified key.
+     * @param key the key whose presence is to be tested
+     * @return true if this map contains a mapping for the key
+     */
+    public boolean containsKey(int key) {
+        return key == FREE_KEY ? hasFreeKey : indexOf(key) >= 0;
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or the
+     * no-entry value if this map contains no mapping for the key.
+     * @param  key the key whose associated value is to be returned
+     * @return the value to which the specified key is mapped, or the
+     *         no-entry value if this map contains no mapping for the key
+     */
+    public int get(int key) {
+        if (key == FREE_KEY) {
+            return hasFreeKey ? freeKeyValue : noEntryValue;
+        }
+        int index = indexOf(key);
+        return index >= 0 ? values[index] : noEntryValue;
+    }
+
+    /**
+     * Associates the specified value with the specified key in this map.
+     * @param key   the key with which the specified value is to be associated
+     * @param value the value to be associated with the specified key
+     * @return the previous value associated with key, or the no-entry value
+     *         if there was no mapping for key
+     */
+    public int put(int key, int value) {
+        if (key == FREE_KEY) {
+            int oldValue = hasFreeKey ? freeKeyValue : noEntryValue;
+            if (!hasFreeKey) {
+                hasFreeKey = true;
+                numEntries++;
+            }
+            freeKeyValue = value;
+            return oldValue;
+        }
+        int index = slotFor(key);
+        if (keys[index] == key) {                  // replace the value
+            int oldValue = values[index];
+            values[index] = value;
+            return oldValue;
+        }
+        insertAt(index, key, value);
+        return noEntryValue;
+    }
+
+    /**
+     * Adds delta to the value mapped to the specified key. A missing key is
+     * treated as mapped to the no-entry value.
+     * @param key   the key whose value is to be incremented
+     * @param delta the amount to add
+     * @return the new value associated with key
+     */
+    public int increment(int key, int delta) {
+        if (key == FREE_KEY) {
+            if (!hasFreeKey) {
+                hasFreeKey = true;
+                freeKeyValue = noEntryValue;
+                numEntries++;
+            }
+            return freeKeyValue += delta;
+        }
+        int index = slotFor(key);
+        if (keys[index] == key) {
+            return values[index] += delta;
+        }
+        insertAt(index, key, noEntryValue + delta);
+        return noEntryValue + delta;
+    }
+
+    /**
+     * Removes the mapping for a key from this map if it is present.
+     * @param key the key whose mapping is to be removed from the map
+     * @return the previous value associated with key, or the no-entry value
+     *         if there was no mapping for key
+     */
+    public int remove(int key) {
+        if (key == FREE_KEY) {
+            if (!hasFreeKey) {
+                return noEntryValue;
+            }
+            hasFreeKey = false;
+            numEntries--;
+            return freeKeyValue;
+        }
+        int index = indexOf(key);
+        if (index < 0) {
+            return noEntryValue;
+        }
+        int oldValue = values[index];
+        // Backward-shift deletion: move each following entry whose home slot
+        // is not between the hole and itself back into the hole.
+        int mask = keys.length - 1;
+        int next = index;
+        while (true) {
+            next = (next + 1) & mask;
+            int k = keys[next];
+            if (k == FREE_KEY) {
+                break;
+            }
+            int home = hash(k) & mask;
+            if (((next - home) & mask) >= ((next - index) & mask)) {
+                keys[index] = k;
+                values[index] = values[next];
+                index = next;
+            }
+        }
+        keys[index] = FREE_KEY;
+        numEntries--;
+        return oldValue;
+    }
+
+    /**
+     * Returns the slot holding the specified non-free key, or -1 if the key
+     * is not in the map.
+     */
+    private int indexOf(int key) {
+        int index = slotFor(key);
+        return keys[index] == key ? index : -1;
+    }
+
+    /**
+     * Returns the slot holding the specified non-free key, or the empty slot
+     * where it would be inserted.
+     */
+    private int slotFor(int key) {
+        int mask = keys.length - 1;
+        int index = hash(key) & mask;
+        while (keys[index] != key && keys[index] != FREE_KEY) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    /**
+     * Stores a new non-free key in the empty slot at index, growing the table
+     * if it becomes too full.
+     */
+    private void insertAt(int index, int key, int value) {
+        keys[index] = key;
+        values[index] = value;
+        numEntries++;
+        if (numEntries > maxEntries) {
+            resize(keys.length * 2);
+        }
+    }
+
+    private void resize(int newCapacity) {
+        if (newCapacity > MAX_CAPACITY) {
+            throw new IllegalStateException("IntIntMyHashMap is full.");
+        }
+        int[] oldKeys = keys, oldValues = values;
+        allocate(newCapacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != FREE_KEY) {
+                int index = slotFor(oldKeys[i]);
+                keys[index] = oldKeys[i];
+                values[index] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new int[capacity];
+        maxEntries = (int)(capacity * MAX_LOAD_FACTOR);
+    }
+
+    /**
+     * Spreads the bits of the key so that nearby keys do not form long runs
+     * in a power-of-two table.
+     */
+    private static int hash(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    /**
+     * Returns the load factor of this map, defined as the number of entries /
+     * table size.
+     * @return the load factor of this map
+     */
+    public double getLoadFactor() {
+        return (double)numEntries / keys.length;
+    }
+
+    /**
+     * Returns a cursor over the mappings in this map. The map must not be
+     * modified while the cursor is in use.
+     * @return a cursor over the mappings in this map
+     */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * Walks the mappings of the map without boxing. Call advance() before
+     * reading the first mapping:
+     * <pre>
+     * IntIntMyHashMap.Cursor c = map.cursor();
+     * while (c.advance()) {
+     *     use(c.key(), c.value());
+     * }
+     * </pre>
+     */
+    public class Cursor {
+        // -2 before the free key, -1 on the free key, otherwise a slot.
+        private int index = -2;
+
+        /**
+         * Moves to the next mapping.
+         * @return true if there is a next mapping, false at the end
+         */
+        public boolean advance() {
+            if (index == -2) {
+                index = -1;
+                if (hasFreeKey) {
+                    return true;
+                }
+            }
+            while (++index < keys.length) {
+                if (keys[index] != FREE_KEY) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Returns the key of the current mapping.
+         * @return the key of the current mapping
+         */
+        public int key() {
+            checkPosition();
+            return index == -1 ? FREE_KEY : keys[index];
+        }
+
+        /**
+         * Returns the value of the current mapping.
+         * @return the value of the current mapping
+         */
+        public int value() {
+            checkPosition();
+            return index == -1 ? freeKeyValue : values[index];
+        }
+
+        private void checkPosition() {
+            if (index < -1 || index >= keys.length) {
+                throw new NoSuchElementException();
+            }
+        }
+    }
+
+    public static void main(String[] args) {
+        IntIntMyHashMap map = new IntIntMyHashMap();
+        int upperLimit = 1000;
+        int expectedSum = 0;
+        for (int i = 0; i < upperLimit; i++) {
+            map.put(i - upperLimit / 2, i);
+            expectedSum += i;
+        }
+        System.out.println("Size            : " + map.size());
+        System.out.println("Table size      : " + map.getTableSize());
+        System.out.println("Load factor     : " + map.getLoadFactor());
+        System.out.println("Expected sum: " + expectedSum);
+        int receivedSum = 0;
+        for (int i = 0; i < upperLimit; i++) {
+            receivedSum += map.get(i - upperLimit / 2);
+        }
+        System.out.println("Received sum: " + receivedSum);
+        receivedSum = 0;
+        Cursor cursor = map.cursor();
+        while (cursor.advance()) {
+            receivedSum += cursor.value();
+        }
+        System.out.println("Received sum: " + receivedSum);
+        receivedSum = 0;
+        for (int i = 0; i < upperLimit; i++) {
+            receivedSum += map.remove(i - upperLimit / 2);
+        }
+        System.out.println("Received sum: " + receivedSum);
+        System.out.println("Size            : " + map.size());
+        System.out.println();
+
+        benchmarkCounting();
+    }
+
+    /**
+     * Counts occurrences of random keys with IntIntMyHashMap.increment and
+     * with a MyHashMap of boxed Integers.
+     */
+    private static void benchmarkCounting() {
+        int n = 5000000, keyRange = 100000;
+        int[] stream = new int[n];
+        Random random = new Random(42);
+        for (int i = 0; i < n; i++) {
+            stream[i] = random.nextInt(keyRange);
+        }
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            MyHashMap<Integer, Integer> boxed = new MyHashMap<>();
+            for (int key : stream) {
+                Integer count = boxed.get(key);
+                boxed.put(key, count == null ? 1 : count + 1);
+            }
+            long boxedTime = System.nanoTime() - start;
+            start = System.nanoTime();
+            IntIntMyHashMap primitive = new IntIntMyHashMap();
+            for (int key : stream) {
+                primitive.increment(key, 1);
+            }
+            long primitiveTime = System.nanoTime() - start;
+            if (round == 2) {   // the first rounds warm up the JIT
+                System.out.printf("MyHashMap<Integer, Integer>: %6.1f ns/count\n",
+                                  (double)boxedTime / n);
+                System.out.printf("IntIntMyHashMap            : %6.1f ns/count\n",
+                                  (double)primitiveTime / n);
+            }
+        }
+    }
+}
@@ -0,0 +1,312 @@
+import java.util.NoSuchElementException;
+
+/**
+ * Class for a hash map from int keys to object values. Keys are kept in a
+ * flat int array with linear probing, so get, put and remove never box the
+ * key and never allocate (apart from growing the table). Key 0 marks an empty
+ * slot, so a mapping for key 0 is kept in separate fields.
+ * @author Fengzhe Liu (fl2635)
+ * @version 1.0 October 18, 2026
+ */
+public class IntObjectMyHashMap<V> {
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final int MAX_CAPACITY = 1 << 30;
+    private static final double MAX_LOAD_FACTOR = 0.5;
+    private static final int FREE_KEY = 0;
+    private int[] keys;
+    private Object[] values;
+    private int numEntries, maxEntries;
+    private boolean hasFreeKey;
+    private V freeKeyValue;
+
+    public IntObjectMyHashMap() {
+        allocate(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Returns the number of slots in this map.
+     * @return the number of slots in this map
+     */
+    public int getTableSize() {
+        return keys.length;
+    }
+
+    /**
+     * Returns the number of key-value mappings in this map.
+     * @return the number of key-value mappings in this map
+     */
+    public int size() {
+        return numEntries;
+    }
+
+    /**
+     * Returns true if this map contains no key-value mappings.
+     * @return true if this map contains no key-value mappings
+     */
+    public boolean isEmpty() {
+        return numEntries == 0;
+    }
+
+    /**
+     * Returns true if this map contains a mapping for the specified key.
+     * @param key the key whose presence is to be tested
+     * @return true if this map contains a mapping for the key
+     */
+    public boolean containsKey(int key) {
+        return key == FREE_KEY ? hasFreeKey : indexOf(key) >= 0;
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or null if this
+     * map contains no mapping for the key.
+     * @param  key the key whose associated value is to be returned
+     * @return the value to which the specified key is mapped, or null if this
+     *         map contains no mapping for the key
+     */
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        if (key == FREE_KEY) {
+            return hasFreeKey ? freeKeyValue : null;
+        }
+        int index = indexOf(key);
+        return index >= 0 ? (V)values[index] : null;
+    }
+
+    /**
+     * Associates the specified value with the specified key in this map.
+     * @param key   the key with which the specified value is to be associated
+     * @param value the value to be associated with the specified key
+     * @return the previous value associated with key, or null if there was no
+     *         mapping for key
+     */
+    @SuppressWarnings("unchecked")
+    public V put(int key, V value) {
+        if (key == FREE_KEY) {
+            V oldValue = hasFreeKey ? freeKeyValue : null;
+            if (!hasFreeKey) {
+                hasFreeKey = true;
+                numEntries++;
+            }
+            freeKeyValue = value;
+            return oldValue;
+        }
+        int index = slotFor(key);
+        if (keys[index] == key) {                  // replace the value
+            V oldValue = (V)values[index];
+            values[index] = value;
+            return oldValue;
+        }
+        keys[index] = key;
+        values[index] = value;
+        numEntries++;
+        if (numEntries > maxEntries) {
+            resize(keys.length * 2);
+        }
+        return null;
+    }
+
+    /**
+     * Removes the mapping for a key from this map if it is present.
+     * @param key the key whose mapping is to be removed from the map
+     * @return the previous value associated with key, or null if there was no
+     *         mapping for key
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(int key) {
+        if (key == FREE_KEY) {
+            if (!hasFreeKey) {
+                return null;
+            }
+            V oldValue = freeKeyValue;
+            hasFreeKey = false;
+            freeKeyValue = null;
+            numEntries--;
+            return oldValue;
+        }
+        int index = indexOf(key);
+        if (index < 0) {
+            return null;
+        }
+        V oldValue = (V)values[index];
+        // Backward-shift deletion: move each following entry whose home slot
+        // is not between the hole and itself back into the hole.
+        int mask = keys.length - 1;
+        int next = index;
+        while (true) {
+            next = (next + 1) & mask;
+            int k = keys[next];
+            if (k == FREE_KEY) {
+                break;
+            }
+            int home = hash(k) & mask;
+            if (((next - home) & mask) >= ((next - index) & mask)) {
+                keys[index] = k;
+                values[index] = values[next];
+                index = next;
+            }
+        }
+        keys[index] = FREE_KEY;
+        values[index] = null;
+        numEntries--;
+        return oldValue;
+    }
+
+    /**
+     * Returns the slot holding the specified non-free key, or -1 if the key
+     * is not in the map.
+     */
+    private int indexOf(int key) {
+        int index = slotFor(key);
+        return keys[index] == key ? index : -1;
+    }
+
+    /**
+     * Returns the slot holding the specified non-free key, or the empty slot
+     * where it would be inserted.
+     */
+    private int slotFor(int key) {
+        int mask = keys.length - 1;
+        int index = hash(key) & mask;
+        while (keys[index] != key && keys[index] != FREE_KEY) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    private void resize(int newCapacity) {
+        if (newCapacity > MAX_CAPACITY) {
+            throw new IllegalStateException("IntObjectMyHashMap is full.");
+        }
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(newCapacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != FREE_KEY) {
+                int index = slotFor(oldKeys[i]);
+                keys[index] = oldKeys[i];
+                values[index] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new Object[capacity];
+        maxEntries = (int)(capacity * MAX_LOAD_FACTOR);
+    }
+
+    /**
+     * Spreads the bits of the key so that nearby keys do not form long runs
+     * in a power-of-two table.
+     */
+    private static int hash(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    /**
+     * Returns the load factor of this map, defined as the number of entries /
+     * table size.
+     * @return the load factor of this map
+     */
+    public double getLoadFactor() {
+        return (double)numEntries / keys.length;
+    }
+
+    /**
+     * Returns a cursor over the mappings in this map. The map must not be
+     * modified while the cursor is in use.
+     * @return a cursor over the mappings in this map
+     */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * Walks the mappings of the map without boxing the keys. Call advance()
+     * before reading the first mapping.
+     */
+    public class Cursor {
+        // -2 before the free key, -1 on the free key, otherwise a slot.
+        private int index = -2;
+
+        /**
+         * Moves to the next mapping.
+         * @return true if there is a next mapping, false at the end
+         */
+        public boolean advance() {
+            if (index == -2) {
+                index = -1;
+                if (hasFreeKey) {
+                    return true;
+                }
+            }
+            while (++index < keys.length) {
+                if (keys[index] != FREE_KEY) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Returns the key of the current mapping.
+         * @return the key of the current mapping
+         */
+        public int key() {
+            checkPosition();
+            return index == -1 ? FREE_KEY : keys[index];
+        }
+
+        /**
+         * Returns the value of the current mapping.
+         * @return the value of the current mapping
+         */
+        @SuppressWarnings("unchecked")
+        public V value() {
+            checkPosition();
+            return index == -1 ? freeKeyValue : (V)values[index];
+        }
+
+        private void checkPosition() {
+            if (index < -1 || index >= keys.length) {
+                throw new NoSuchElementException();
+            }
+        }
+    }
+
+    public static void main(String[] args) {
+        IntObjectMyHashMap<String> map = new IntObjectMyHashMap<>();
+        int upperLimit = 1000;
+        int expectedSum = 0;
+        for (int i = 0; i < upperLimit; i++) {
+            map.put(i - upperLimit / 2, String.valueOf(i));
+            expectedSum += i;
+        }
+        System.out.println("Size            : " + map.size());
+        System.out.println("Table size      : " + map.getTableSize());
+        System.out.println("Load factor     : " + map.getLoadFactor());
+        System.out.println("Expected sum: " + expectedSum);
+        int receivedSum = 0;
+        for (int i = 0; i < upperLimit; i++) {
+            receivedSum += Integer.parseInt(map.get(i - upperLimit / 2));
+        }
+        System.out.println("Received sum: " + receivedSum);
+        receivedSum = 0;
+        IntObjectMyHashMap<String>.Cursor cursor = map.cursor();
+        while (cursor.advance()) {
+            receivedSum += Integer.parseInt(cursor.value());
+        }
+        System.out.println("Received sum: " + receivedSum);
+        receivedSum = 0;
+        for (int i = 0; i < upperLimit; i++) {
+            receivedSum += Integer.parseInt(map.remove(i - upperLimit / 2));
+        }
+        System.out.println("Received sum: " + receivedSum);
+        System.out.println("Size            : " + map.size());
+    }
+}
@@ -0,0 +1,525 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Class for a hash map stored in a memory-mapped file. Buckets and entries
+ * live in the file, outside the garbage-collected heap, in a fixed binary
+ * layout. Reopening an existing file maps it and reads the header, without
+ * deserializing any entry, so a restarted process can serve get right away.
+ * <p>
+ * Keys and values are converted to bytes by a Codec. Keys are hashed by their
+ * encoded bytes, so a file can be read by any process using the same codecs.
+ * <p>
+ * File layout (all numbers big-endian):
+ * <pre>
+ * header, 64 bytes:
+ *   0  int  magic number 0x4D484D31
+ *   4  int  format version
+ *   8  int  number of buckets (a power of two)
+ *  12  int  number of entries
+ *  16  long offset of the bucket array
+ *  24  long offset of the first unused byte
+ * bucket array: one long per bucket, the offset of the first record in its
+ *               chain, or 0 for an empty bucket
+ * record:
+ *   0  long offset of the next record in the chain, or 0
+ *   8  int  hash of the key bytes
+ *  12  int  length of the key bytes
+ *  16  int  length of the value bytes
+ *  20  key bytes, then value bytes
+ * </pre>
+ * Space is only ever appended. A record that is removed, or whose value
+ * changes length, and the bucket array left behind by a rehash, are not
+ * reused. Changes are written straight into the mapping; call force() to
+ * make sure they have reached the disk. The mapping is limited to 2 GB.
+ * @author Fengzhe Liu (fl2635)
+ * @version 1.0 October 18, 2026
+ */
+public class MappedHashMap<K extends Comparable<K>, V>
+        implements MyMap<K, V>, Closeable {
+    /**
+     * Converts keys or values to and from bytes.
+     */
+    public interface Codec<T> {
+        byte[] encode(T t);
+
+        T decode(byte[] bytes);
+    }
+
+    public static final Codec<String> STRING_CODEC = new Codec<>() {
+        public byte[] encode(String s) {
+            return s.getBytes(StandardCharsets.UTF_8);
+        }
+
+        public String decode(byte[] bytes) {
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    };
+
+    public static final Codec<Integer> INTEGER_CODEC = new Codec<>() {
+        public byte[] encode(Integer i) {
+            int x = i;
+            return new byte[] { (byte)(x >>> 24), (byte)(x >>> 16),
+                                (byte)(x >>> 8), (byte)x };
+        }
+
+        public Integer decode(byte[] b) {
+            return (b[0] << 24) | ((b[1] & 0xff) << 16) | ((b[2] & 0xff) << 8)
+                    | (b[3] & 0xff);
+        }
+    };
+
+    private static final int MAGIC = 0x4D484D31, VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int BUCKET_COUNT = 8, NUM_ENTRIES = 12,
+            BUCKETS_OFFSET = 16, DATA_END = 24;
+    private static final int NEXT = 0, HASH = 8, KEY_LENGTH = 12,
+            VALUE_LENGTH = 16, RECORD_HEADER_SIZE = 20;
+    private static final int DEFAULT_BUCKET_COUNT = 1024;
+    private static final int MIN_FILE_SIZE = 1 << 20;
+    private static final double MAX_LOAD_FACTOR = 0.75;
+
+    private final FileChannel channel;
+    private final Codec<K> keyCodec;
+    private final Codec<V> valueCodec;
+    private MappedByteBuffer buffer;
+    // Copies of the header fields, written through to the file.
+    private int bucketCount, numEntries, bucketsOffset, dataEnd;
+
+    /**
+     * Opens the map stored in the given file, or creates an empty map there
+     * if the file does not exist or is empty.
+     * @param path       the file holding the map
+     * @param keyCodec   the codec for keys
+     * @param valueCodec the codec for values
+     * @throws IOException if the file cannot be opened or mapped, or is not a
+     *                     MappedHashMap file
+     */
+    public MappedHashMap(Path path, Codec<K> keyCodec, Codec<V> valueCodec)
+            throws IOException {
+        this.keyCodec = keyCodec;
+        this.valueCodec = valueCodec;
+        channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                                   StandardOpenOption.READ,
+                                   StandardOpenOption.WRITE);
+        long fileSize = channel.size();
+        if (fileSize == 0) {
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                                 MIN_FILE_SIZE);
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            bucketCount = DEFAULT_BUCKET_COUNT;
+            bucketsOffset = HEADER_SIZE;
+            dataEnd = HEADER_SIZE + 8 * bucketCount;
+            writeHeader();
+            return;
+        }
+        if (fileSize < HEADER_SIZE || fileSize > Integer.MAX_VALUE) {
+            channel.close();
+            throw new IOException("Not a MappedHashMap file: " + path);
+        }
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            channel.close();
+            throw new IOException("Not a MappedHashMap file: " + path);
+        }
+        bucketCount = buffer.getInt(BUCKET_COUNT);
+        numEntries = buffer.getInt(NUM_ENTRIES);
+        bucketsOffset = (int)buffer.getLong(BUCKETS_OFFSET);
+        dataEnd = (int)buffer.getLong(DATA_END);
+    }
+
+    private void writeHeader() {
+        buffer.putInt(BUCKET_COUNT, bucketCount);
+        buffer.putInt(NUM_ENTRIES, numEntries);
+        buffer.putLong(BUCKETS_OFFSET, bucketsOffset);
+        buffer.putLong(DATA_END, dataEnd);
+    }
+
+    /**
+     * Returns the number of buckets in this MappedHashMap.
+     * @return the number of buckets in this MappedHashMap
+     */
+    public int getTableSize() {
+        return bucketCount;
+    }
+
+    /**
+     * Returns the number of bytes of the file in use.
+     * @return the number of bytes of the file in use
+     */
+    public int getUsedBytes() {
+        return dataEnd;
+    }
+
+    /**
+     * Returns the number of key-value mappings in this map.
+     * @return the number of key-value mappings in this map
+     */
+    @Override
+    public int size() {
+        return numEntries;
+    }
+
+    /**
+     * Returns true if this map contains no key-value mappings.
+     * @return true if this map contains no key-value mappings
+     */
+    @Override
+    public boolean isEmpty() {
+        return numEntries == 0;
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or null if this
+     * map contains no mapping for the key.
+     * @param  key the key whose associated value is to be returned
+     * @return the value to which the specified key is mapped, or null if this
+     *         map contains no mapping for the key
+     */
+    @Override
+    public V get(K key) {
+        byte[] keyBytes = keyCodec.encode(key);
+        int h = hash(keyBytes);
+        for (int r = head(h); r != 0; r = next(r)) {
+            if (matches(r, h, keyBytes)) {
+                return readValue(r);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Associates the specified value with the specified key in this map. If the
+     * map previously contained a mapping for the key, the old value is replaced
+     * by the specified value.
+     * @param key   the key with which the specified value is to be associated
+     * @param value the value to be associated with the specified key
+     * @return the previous value associated with key, or null if there was no
+     *         mapping for key
+     * @throws NullPointerException if the value is null
+     */
+    @Override
+    public V put(K key, V value) {
+        if (value == null) {
+            throw new NullPointerException("Null values are not supported.");
+        }
+        byte[] keyBytes = keyCodec.encode(key);
+        byte[] valueBytes = valueCodec.encode(value);
+        int h = hash(keyBytes);
+        int prev = 0;
+        for (int r = head(h); r != 0; prev = r, r = next(r)) {
+            if (matches(r, h, keyBytes)) {
+                V oldValue = readValue(r);
+                if (buffer.getInt(r + VALUE_LENGTH) == valueBytes.length) {
+                    buffer.put(r + RECORD_HEADER_SIZE + keyBytes.length,
+                               valueBytes);
+                } else {        // write a new record in place of the old one
+                    int record = append(h, keyBytes, valueBytes, next(r));
+                    link(prev, h, record);
+                }
+                return oldValue;
+            }
+        }
+        int record = append(h, keyBytes, valueBytes, head(h));
+        link(0, h, record);
+        numEntries++;
+        buffer.putInt(NUM_ENTRIES, numEntries);
+        if ((double)numEntries / bucketCount > MAX_LOAD_FACTOR) {
+            rehash();
+        }
+        return null;
+    }
+
+    /**
+     * Removes the mapping for a key from this map if it is present.
+     * @param key the key whose mapping is to be removed from the map
+     * @return the previous value associated with key, or null if there was no
+     *         mapping for key
+     */
+    @Override
+    public V remove(K key) {
+        byte[] keyBytes = keyCodec.encode(key);
+        int h = hash(keyBytes);
+        int prev = 0;
+        for (int r = head(h); r != 0; prev = r, r = next(r)) {
+            if (matches(r, h, keyBytes)) {
+                link(prev, h, next(r));
+                numEntries--;
+                buffer.putInt(NUM_ENTRIES, numEntries);
+                return readValue(r);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Writes a new record at the end of the used space and returns its
+     * offset.
+     */
+    private int append(int h, byte[] keyBytes, byte[] valueBytes, int next) {
+        int record = allocate(RECORD_HEADER_SIZE + keyBytes.length
+                              + valueBytes.length);
+        buffer.putLong(record + NEXT, next);
+        buffer.putInt(record + HASH, h);
+        buffer.putInt(record + KEY_LENGTH, keyBytes.length);
+        buffer.putInt(record + VALUE_LENGTH, valueBytes.length);
+        buffer.put(record + RECORD_HEADER_SIZE, keyBytes);
+        buffer.put(record + RECORD_HEADER_SIZE + keyBytes.length, valueBytes);
+        return record;
+    }
+
+    /**
+     * Makes record the successor of prev, or the head of the bucket for hash
+     * h if prev is 0.
+     */
+    private void link(int prev, int h, int record) {
+        if (prev == 0) {
+            buffer.putLong(bucketsOffset + 8 * bucketIndex(h, bucketCount),
+                           record);
+        } else {
+            buffer.putLong(prev + NEXT, record);
+        }
+    }
+
+    /**
+     * Reserves length bytes at the end of the used space, growing the file
+     * if needed, and returns their offset.
+     */
+    private int allocate(int length) {
+        long end = (long)dataEnd + length;
+        if (end > buffer.capacity()) {
+            long newSize = Math.max(end, 2L * buffer.capacity());
+            newSize = Math.min(newSize, Integer.MAX_VALUE);
+            if (end > newSize) {
+                throw new IllegalStateException("MappedHashMap file is full.");
+            }
+            try {
+                buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                                     newSize);
+            } catch (IOException e) {
+                throw new IllegalStateException("Cannot grow MappedHashMap file.",
+                                                e);
+            }
+        }
+        int offset = dataEnd;
+        dataEnd = (int)end;
+        buffer.putLong(DATA_END, dataEnd);
+        return offset;
+    }
+
+    /**
+     * Doubles the number of buckets. The new bucket array is appended to the
+     * file and the existing records are relinked into it, not copied.
+     */
+    private void rehash() {
+        int newCount = bucketCount * 2;
+        int newBuckets = allocate(8 * newCount);
+        for (int i = 0; i < newCount; i++) {
+            buffer.putLong(newBuckets + 8 * i, 0);
+        }
+        for (int i = 0; i < bucketCount; i++) {
+            int r = (int)buffer.getLong(bucketsOffset + 8 * i);
+            while (r != 0) {
+                int next = next(r);
+                int slot = newBuckets
+                        + 8 * bucketIndex(buffer.getInt(r + HASH), newCount);
+                buffer.putLong(r + NEXT, buffer.getLong(slot));
+                buffer.putLong(slot, r);
+                r = next;
+            }
+        }
+        bucketCount = newCount;
+        bucketsOffset = newBuckets;
+        writeHeader();
+    }
+
+    private int head(int h) {
+        return (int)buffer.getLong(bucketsOffset
+                                   + 8 * bucketIndex(h, bucketCount));
+    }
+
+    private int next(int record) {
+        return (int)buffer.getLong(record + NEXT);
+    }
+
+    /**
+     * Returns true if the record holds a key with the given hash and bytes.
+     * The bytes are compared in place, without copying the stored key.
+     */
+    private boolean matches(int record, int h, byte[] keyBytes) {
+        if (buffer.getInt(record + HASH) != h
+                || buffer.getInt(record + KEY_LENGTH) != keyBytes.length) {
+            return false;
+        }
+        int start = record + RECORD_HEADER_SIZE;
+        for (int i = 0; i < keyBytes.length; i++) {
+            if (buffer.get(start + i) != keyBytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private K readKey(int record) {
+        byte[] bytes = new byte[buffer.getInt(record + KEY_LENGTH)];
+        buffer.get(record + RECORD_HEADER_SIZE, bytes);
+        return keyCodec.decode(bytes);
+    }
+
+    private V readValue(int record) {
+        int keyLength = buffer.getInt(record + KEY_LENGTH);
+        byte[] bytes = new byte[buffer.getInt(record + VALUE_LENGTH)];
+        buffer.get(record + RECORD_HEADER_SIZE + keyLength, bytes);
+        return valueCodec.decode(bytes);
+    }
+
+    private static int hash(byte[] bytes) {
+        int h = Arrays.hashCode(bytes);
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    private static int bucketIndex(int h, int count) {
+        return h & (count - 1);
+    }
+
+    /**
+     * Returns the load factor of this MappedHashMap, defined as the number of
+     * entries / table size.
+     * @return the load factor of this MappedHashMap
+     */
+    public double getLoadFactor() {
+        return (double)numEntries / bucketCount;
+    }
+
+    /**
+     * Writes any changes still held in memory to the file.
+     */
+    public void force() {
+        buffer.force();
+    }
+
+    /**
+     * Writes any pending changes to the file and closes it. The map must not
+     * be used afterwards.
+     * @throws IOException if the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+
+    /**
+     * Returns an iterator over the mappings in this MappedHashMap in bucket
+     * order. Each call to next() decodes a new Entry.
+     * @return an iterator over the mappings in this MappedHashMap
+     */
+    public Iterator<Entry<K, V>> iterator() {
+        return new MapItr();
+    }
+
+    private class MapItr implements Iterator<Entry<K, V>> {
+        private int bucket = -1, record;
+
+        MapItr() {
+            advanceToNextBucket();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return record != 0;
+        }
+
+        @Override
+        public Entry<K, V> next() {
+            if (record == 0) {
+                throw new NoSuchElementException();
+            }
+            Entry<K, V> e = new Entry<>(readKey(record), readValue(record));
+            record = MappedHashMap.this.next(record);
+            if (record == 0) {
+                advanceToNextBucket();
+            }
+            return e;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        private void advanceToNextBucket() {
+            while (record == 0 && ++bucket < bucketCount) {
+                record = (int)buffer.getLong(bucketsOffset + 8 * bucket);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path path = args.length > 0 ? Path.of(args[0])
+                : Files.createTempFile("MappedHashMap", ".bin");
+        Files.deleteIfExists(path);
+        int n = 200000;
+        long expectedSum = 0;
+        long start = System.nanoTime();
+        try (MappedHashMap<String, Integer> map =
+                     new MappedHashMap<>(path, STRING_CODEC, INTEGER_CODEC)) {
+            for (int i = 1; i <= n; i++) {
+                map.put("key" + i, i);
+                expectedSum += i;
+            }
+            for (int i = 1; i <= n; i += 2) {
+                map.remove("key" + i);
+                expectedSum -= i;
+            }
+            System.out.println("Size            : " + map.size());
+            System.out.println("Table size      : " + map.getTableSize());
+            System.out.println("Load factor     : " + map.getLoadFactor());
+            System.out.println("Bytes used      : " + map.getUsedBytes());
+        }
+        System.out.printf("Build time      : %.1f ms\n",
+                          (System.nanoTime() - start) / 1e6);
+
+        // Reopen the file as a restarted process would.
+        start = System.nanoTime();
+        try (MappedHashMap<String, Integer> map =
+                     new MappedHashMap<>(path, STRING_CODEC, INTEGER_CODEC)) {
+            long openTime = System.nanoTime() - start;
+            start = System.nanoTime();
+            Integer first = map.get("key2");
+            long firstGetTime = System.nanoTime() - start;
+            System.out.printf("Reopen time     : %.3f ms\n", openTime / 1e6);
+            System.out.printf("First get       : %.3f ms (value %d)\n",
+                              firstGetTime / 1e6, first);
+            System.out.println("Size            : " + map.size());
+            System.out.println("Expected sum: " + expectedSum);
+            long receivedSum = 0;
+            for (int i = 2; i <= n; i += 2) {
+                receivedSum += map.get("key" + i);
+            }
+            System.out.println("Received sum: " + receivedSum);
+            receivedSum = 0;
+            Iterator<Entry<String, Integer>> iter = map.iterator();
+            while (iter.hasNext()) {
+                receivedSum += iter.next().value;
+            }
+            System.out.println("Received sum: " + receivedSum);
+        }
+        Files.deleteIfExists(path);
+    }
+}
@@ -1,4 +1,6 @@
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.function.Predicate;
 
 /**
  * Resizable-array implementation of the MyList interface.
@@ -11,6 +13,22 @@ public class MyArrayList<E> implements MyList<E> {
      */
     private static final int DEFAULT_CAPACITY = 10;
 
+    /**
+     * Default factor by which the capacity grows when the array is full.
+     */
+    private static final double DEFAULT_GROWTH_FACTOR = 2.0;
+
+    /**
+     * The largest capacity to grow to. Some VMs reserve header words in an
+     * array, so a request for Integer.MAX_VALUE elements can fail.
+     */
+    private static final int MAX_CAPACITY = Integer.MAX_VALUE - 8;
+
+    /**
+     * The factor by which the capacity grows when the array is full.
+     */
+    private final double growthFactor;
+
     /**
      * The size of the ArrayList (the number of elements it contains).
      */
@@ -30,18 +48,73 @@ public class MyArrayList<E> implements MyList<E> {
      *                                  is negative
      */
     public MyArrayList(int initialCapacity) {
+        this(initialCapacity, DEFAULT_GROWTH_FACTOR);
+    }
+
+    /**
+     * Constructs an empty list with the specified initial capacity, whose
+     * capacity is multiplied by growthFactor whenever it runs out.
+     *
+     * @param initialCapacity the initial capacity of the list
+     * @param growthFactor    the factor by which the capacity grows
+     * @throws IllegalArgumentException if the specified initial capacity
+     *                                  is negative or the growth factor is
+     *                                  not greater than 1
+     */
+    public MyArrayList(int initialCapacity, double growthFactor) {
         if (initialCapacity < 0) {
             throw new IllegalArgumentException("Illegal Capacity: " +
                     initialCapacity);
         }
+        if (!(growthFactor > 1)) {
+            throw new IllegalArgumentException("Illegal growth factor: " +
+                    growthFactor);
+        }
         this.elementData = new Object[initialCapacity];
+        this.growthFactor = growthFactor;
     }
 
     /**
      * Constructs an empty list with an initial capacity of ten.
      */
     public MyArrayList() {
-        this.elementData = new Object[DEFAULT_CAPACITY];
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Increases the capacity of this list, if necessary, so that it can hold
+     * at least minCapacity elements without growing again. Call it before
+     * adding many elements to allocate the array once.
+     *
+     * @param minCapacity the desired minimum capacity
+     */
+    public void ensureCapacity(int minCapacity) {
+        if (minCapacity > elementData.length) {
+            elementData = Arrays.copyOf(elementData, minCapacity);
+        }
+    }
+
+    /**
+     * Trims the capacity of this list to its current size, releasing the
+     * unused part of the array.
+     */
+    public void trimToSize() {
+        if (size < elementData.length) {
+            elementData = Arrays.copyOf(elementData, size);
+        }
+    }
+
+    /**
+     * Returns the capacity to grow to so that at least minCapacity elements
+     * fit: the current capacity times the growth factor, plus one so that an
+     * empty array grows too, or minCapacity if that is more.
+     */
+    private int newCapacity(int minCapacity) {
+        if (minCapacity < 0 || minCapacity > MAX_CAPACITY) {
+            throw new OutOfMemoryError("Required array size too large");
+        }
+        double grown = elementData.length * growthFactor + 1;
+        return (int)Math.max(minCapacity, Math.min(grown, MAX_CAPACITY));
     }
 
     /**
@@ -69,12 +142,8 @@ public class MyArrayList<E> implements MyList<E> {
      * @return true
      */
     public boolean add(E element) {
-        if (size + 1 > elementData.length) {
-            Object[] newData = new Object[size * 2 + 1];
-            for (int i = 0; i < size; i++) {
-                newData[i] = elementData[i];
-            }
-            elementData = newData;
+        if (size == elementData.length) {
+            elementData = Arrays.copyOf(elementData, newCapacity(size + 1));
         }
         elementData[size] = element;
         size = size + 1;
@@ -122,9 +191,7 @@ public class MyArrayList<E> implements MyList<E> {
      */
     public void clear() {
         // clear to let GC do its work
-        for (int i = 0; i < size; i++) {
-            elementData[i] = null;
-        }
+        Arrays.fill(elementData, 0, size, null);
         size = 0;
     }
 
@@ -198,22 +265,19 @@ public class MyArrayList<E> implements MyList<E> {
             throw new IndexOutOfBoundsException(
                     "Index: " + index + ", list size: " + size);
         }
-        if (size + 1 >= elementData.length) {
-            Object[] newData = new Object[size * 2 + 1];
-            for (int i = 0; i < index; i++) {
-                newData[i] = elementData[i];
-            }
-            newData[index] = element;
-            for (int i = size; i > index; i--) {
-                newData[i] = elementData[i - 1];
-            }
+        if (size == elementData.length) {
+            // Copy straight into the new array, leaving the gap at index.
+            Object[] newData = new Object[newCapacity(size + 1)];
+            System.arraycopy(elementData, 0, newData, 0, index);
+            System.arraycopy(elementData, index, newData, index + 1,
+                             size - index);
             elementData = newData;
-        }
-        size++;
-        for (int i = size; i > index; i--) {
-            elementData[i] = elementData[i - 1];
+        } else {
+            System.arraycopy(elementData, index, elementData, index + 1,
+                             size - index);
         }
         elementData[index] = element;
+        size++;
     }
 
 
@@ -232,14 +296,125 @@ public class MyArrayList<E> implements MyList<E> {
                     "Index: " + index + ", list size: " + size);
         }
         E oldValue = (E) elementData[index];
-        elementData[index] = null;
-        for (int i = index; i < size; i++) {
-            elementData[i] = elementData[i + 1];
-        }
-        size--;
+        System.arraycopy(elementData, index + 1, elementData, index,
+                         size - index - 1);
+        elementData[--size] = null;     // clear to let GC do its work
         return oldValue;
     }
 
+    /**
+     * Appends all of the elements in the specified array to the end of this
+     * list, in order, growing the array at most once.
+     * @param elements the elements to be appended to this list
+     * @return true if this list changed as a result of the call
+     */
+    public boolean addAll(E[] elements) {
+        return insert(size, elements, elements.length);
+    }
+
+    /**
+     * Inserts all of the elements in the specified list into this list at
+     * the specified position, in order. Shifts the element currently at that
+     * position (if any) and any subsequent elements to the right, all at
+     * once, so inserting k elements takes O(n + k) time instead of k calls to
+     * add(int, E).
+     * @param index    index at which to insert the first element
+     * @param elements the list of elements to be inserted, which may be this
+     *                 list
+     * @return true if this list changed as a result of the call
+     * @throws IndexOutOfBoundsException if the index is out of range
+     *         (index < 0 || index > size())
+     */
+    public boolean addAll(int index, MyList<? extends E> elements) {
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException(
+                    "Index: " + index + ", list size: " + size);
+        }
+        // Copy the elements first, in case elements is this list.
+        Object[] copy;
+        if (elements instanceof MyArrayList) {
+            MyArrayList<?> other = (MyArrayList<?>) elements;
+            copy = Arrays.copyOf(other.elementData, other.size);
+        } else {
+            copy = new Object[elements.size()];
+            int i = 0;
+            for (E element : elements) {
+                copy[i++] = element;
+            }
+        }
+        return insert(index, copy, copy.length);
+    }
+
+    /**
+     * Inserts the first count elements of a at index with a single shift,
+     * growing the array at most once.
+     */
+    private boolean insert(int index, Object[] a, int count) {
+        if (count == 0) {
+            return false;
+        }
+        if (size + count > elementData.length) {
+            Object[] newData = new Object[newCapacity(size + count)];
+            System.arraycopy(elementData, 0, newData, 0, index);
+            System.arraycopy(elementData, index, newData, index + count,
+                             size - index);
+            elementData = newData;
+        } else {
+            System.arraycopy(elementData, index, elementData, index + count,
+                             size - index);
+        }
+        System.arraycopy(a, 0, elementData, index, count);
+        size += count;
+        return true;
+    }
+
+    /**
+     * Removes the elements from fromIndex, inclusive, to toIndex, exclusive,
+     * shifting the elements after them to the left once.
+     * @param fromIndex index of the first element to be removed
+     * @param toIndex   index after the last element to be removed
+     * @throws IndexOutOfBoundsException if fromIndex or toIndex is out of
+     *         range (fromIndex < 0 || toIndex > size() || fromIndex > toIndex)
+     */
+    public void removeRange(int fromIndex, int toIndex) {
+        if (fromIndex < 0 || toIndex > size || fromIndex > toIndex) {
+            throw new IndexOutOfBoundsException("From index: " + fromIndex
+                    + ", to index: " + toIndex + ", list size: " + size);
+        }
+        System.arraycopy(elementData, toIndex, elementData, fromIndex,
+                         size - toIndex);
+        int newSize = size - (toIndex - fromIndex);
+        // clear to let GC do its work
+        Arrays.fill(elementData, newSize, size, null);
+        size = newSize;
+    }
+
+    /**
+     * Removes all of the elements of this list that satisfy the given
+     * predicate, in one pass that moves each kept element at most once. If
+     * the predicate throws, the elements not yet tested are kept.
+     * @param filter a predicate which returns true for elements to be
+     *               removed
+     * @return true if any elements were removed
+     */
+    public boolean removeIf(Predicate<? super E> filter) {
+        int oldSize = size, kept = 0, i = 0;
+        try {
+            for (; i < oldSize; i++) {
+                E element = (E) elementData[i];
+                if (!filter.test(element)) {
+                    elementData[kept++] = element;
+                }
+            }
+        } finally {
+            // Keep the untested tail if filter threw, then clear the rest.
+            System.arraycopy(elementData, i, elementData, kept, oldSize - i);
+            size = kept + oldSize - i;
+            Arrays.fill(elementData, size, oldSize, null);
+        }
+        return size < oldSize;
+    }
+
 
     /**
      * Returns the index of the first occurrence of the specified element in
@@ -294,4 +469,138 @@ public class MyArrayList<E> implements MyList<E> {
         }
         elementData = newData;
     }
-}
\ No newline at end of file
+
+    /**
+     * Times block inserts and removals element by element and in bulk, then
+     * appends 100 million elements to lists with the default growth factor,
+     * with a growth factor of 1.5 and with the capacity set up front by
+     * ensureCapacity, and trims a list after removing most of it. Needs
+     * about 3 GB of heap: java -Xmx3g MyArrayList
+     */
+    public static void main(String[] args) {
+        benchmarkBulkEdits();
+
+        int n = 100000000;
+        Integer element = 42;   // one object, so only the array is measured
+        String[] names = {"Growth factor 2:", "Growth factor 1.5:",
+                          "ensureCapacity(n):"};
+        for (int round = 0; round < 3; round++) {
+            long[] times = new long[names.length];
+            for (int kind = 0; kind < names.length; kind++) {
+                System.gc();    // keep the last list's garbage out of the time
+                times[kind] = timeAppends(kind, n, element);
+            }
+            if (round == 2) {   // the first rounds warm up the JIT
+                System.out.println("Appending " + n + " elements");
+                for (int kind = 0; kind < names.length; kind++) {
+                    System.out.printf("%-20s %.1f ms\n", names[kind],
+                                      times[kind] / 1e6);
+                }
+            }
+        }
+
+        MyArrayList<Integer> list = new MyArrayList<>();
+        for (int i = 0; i < 1000000; i++) {
+            list.add(i);
+        }
+        while (list.size() > 10) {
+            list.remove(list.size() - 1);
+        }
+        System.out.println("Capacity before trimToSize: "
+                           + list.elementData.length);
+        list.trimToSize();
+        System.out.println("Capacity after trimToSize:  "
+                           + list.elementData.length + " " + list);
+    }
+
+    /**
+     * Inserts a block of elements into the middle of a list and removes it
+     * again, one element at a time and with addAll and removeRange, then
+     * removes every other element with remove(int) and with removeIf.
+     */
+    private static void benchmarkBulkEdits() {
+        int n = 1000000, k = 10000;
+        Integer[] block = new Integer[k];
+        Arrays.fill(block, -1);
+        MyArrayList<Integer> blockList = new MyArrayList<>(k);
+        blockList.addAll(block);
+        for (int round = 0; round < 3; round++) {
+            MyArrayList<Integer> list = new MyArrayList<>(n + k);
+            for (int i = 0; i < n; i++) {
+                list.add(i);
+            }
+            long start = System.nanoTime();
+            for (int i = 0; i < k; i++) {
+                list.add(n / 2 + i, block[i]);
+            }
+            long addOneTime = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (int i = 0; i < k; i++) {
+                list.remove(n / 2);
+            }
+            long removeOneTime = System.nanoTime() - start;
+            start = System.nanoTime();
+            list.addAll(n / 2, blockList);
+            long addAllTime = System.nanoTime() - start;
+            start = System.nanoTime();
+            list.removeRange(n / 2, n / 2 + k);
+            long removeRangeTime = System.nanoTime() - start;
+
+            // remove(int) is quadratic here, so use a tenth of the list.
+            MyArrayList<Integer> loopList = new MyArrayList<>(n / 10),
+                                 filterList = new MyArrayList<>(n / 10);
+            for (int i = 0; i < n / 10; i++) {
+                loopList.add(list.get(i));
+                filterList.add(list.get(i));
+            }
+            start = System.nanoTime();
+            for (int i = loopList.size() - 1; i >= 0; i--) {
+                if (loopList.get(i) % 2 == 0) {
+                    loopList.remove(i);
+                }
+            }
+            long removeLoopTime = System.nanoTime() - start;
+            start = System.nanoTime();
+            filterList.removeIf(i -> i % 2 == 0);
+            long removeIfTime = System.nanoTime() - start;
+            if (round == 2) {   // the first rounds warm up the JIT
+                System.out.println("Editing a list of " + n + " elements");
+                System.out.printf("%d x add(int, E):     %8.2f ms\n", k,
+                                  addOneTime / 1e6);
+                System.out.printf("addAll(int, MyList):    %8.2f ms\n",
+                                  addAllTime / 1e6);
+                System.out.printf("%d x remove(int):     %8.2f ms\n", k,
+                                  removeOneTime / 1e6);
+                System.out.printf("removeRange:            %8.2f ms\n",
+                                  removeRangeTime / 1e6);
+                System.out.printf("Evens of %d by remove(int): %.2f ms\n",
+                                  n / 10, removeLoopTime / 1e6);
+                System.out.printf("Evens of %d by removeIf:    %.2f ms\n",
+                                  n / 10, removeIfTime / 1e6);
+                System.out.println("Sizes after removing:   "
+                                   + loopList.size() + ", "
+                                   + filterList.size());
+                System.out.println();
+            }
+        }
+    }
+
+    /**
+     * Appends n copies of element to a new list and returns the time taken.
+     * The list is gone once this returns, so it cannot crowd the heap while
+     * the next list is timed.
+     */
+    private static long timeAppends(int kind, int n, Integer element) {
+        long start = System.nanoTime();
+        MyArrayList<Integer> list = kind == 1
+                ? new MyArrayList<>(DEFAULT_CAPACITY, 1.5)
+                : new MyArrayList<>();
+        if (kind == 2) {
+            list.ensureCapacity(n);
+        }
+        for (int i = 0; i < n; i++) {
+            list.add(element);
+        }
+        return System.nanoTime() - start;
+    }
+}
@@ -1,3 +1,6 @@
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
 import java.util.Iterator;
 
 /**
@@ -12,12 +15,74 @@ public class MyHashMap<K extends Comparable<K>, V> implements MyMap<K, V> {
             101, 211, 431, 863, 1733, 3467, 6947, 13901, 27803, 55609, 111227,
             222461 };
     private static final double MAX_LOAD_FACTOR = 0.75;
+    // Largest array length the JVM reliably allows.
+    private static final int MAX_TABLE_SIZE = Integer.MAX_VALUE - 8;
+    // Number of old buckets each operation moves during an incremental rehash.
+    private static final int MIGRATION_STEP = 8;
+    // Chains longer than TREEIFY_THRESHOLD are converted into trees, and trees
+    // that shrink to UNTREEIFY_THRESHOLD entries become chains again.
+    private static final int TREEIFY_THRESHOLD = 8, UNTREEIFY_THRESHOLD = 6;
     private Entry<K, V>[] table;
-    private int primeIndex, numEntries;
+    // trees[i] != null means bucket i holds a tree instead of a chain. The
+    // array is allocated when the first bucket of a table is treeified.
+    private TreeBin<K, V>[] trees;
+    private int numEntries;
+    // While an incremental rehash is in progress, buckets below
+    // migrateIndex have been moved from oldTable into table.
+    private Entry<K, V>[] oldTable;
+    private TreeBin<K, V>[] oldTrees;
+    private int migrateIndex;
+    private final boolean incrementalRehash;
+    // null unless metrics have been enabled
+    private MyHashMapMetrics metrics;
+    // The number of chain entries the last findEntry examined, or -1 if a
+    // tree answered it. Kept by the walk itself, so metrics need no second
+    // walk.
+    private int probes;
 
-    @SuppressWarnings("unchecked")
     public MyHashMap() {
-        table = new Entry[primes[primeIndex]];
+        this(0, false);
+    }
+
+    /**
+     * Creates an empty MyHashMap. If incrementalRehash is true, growing the
+     * table does not move every entry at once. Instead, the old and new tables
+     * coexist, and each get, put and remove moves a few buckets of the old
+     * table into the new one until the old table is empty.
+     * @param incrementalRehash true to spread each rehash over later
+     *                          operations
+     */
+    public MyHashMap(boolean incrementalRehash) {
+        this(0, incrementalRehash);
+    }
+
+    /**
+     * Creates an empty MyHashMap with enough buckets to hold expectedSize
+     * entries without rehashing.
+     * @param expectedSize the number of entries the map is expected to hold
+     * @throws IllegalArgumentException if expectedSize is negative
+     */
+    public MyHashMap(int expectedSize) {
+        this(expectedSize, false);
+    }
+
+    /**
+     * Creates an empty MyHashMap with enough buckets to hold expectedSize
+     * entries without rehashing, and with the given rehash mode.
+     * @param expectedSize      the number of entries the map is expected to
+     *                          hold
+     * @param incrementalRehash true to spread each rehash over later
+     *                          operations
+     * @throws IllegalArgumentException if expectedSize is negative
+     */
+    @SuppressWarnings("unchecked")
+    public MyHashMap(int expectedSize, boolean incrementalRehash) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("Illegal expected size: " +
+                    expectedSize);
+        }
+        this.incrementalRehash = incrementalRehash;
+        table = new Entry[tableSizeFor(expectedSize)];
     }
 
     /**
@@ -56,16 +121,42 @@ public class MyHashMap<K extends Comparable<K>, V> implements MyMap<K, V> {
 
     @Override
     public V get(K key) {
-        Iterator<Entry<K, V>> iter = this.iterator();
-        while (iter.hasNext()) {
-            Entry<K, V> e = iter.next();
-            if (key.equals(e.key)) {
-                return e.value;
-            }
+        // During an incremental rehash only put and remove move buckets, so
+        // a get never disturbs an iterator; findEntry searches both tables.
+        Entry<K, V> e = findEntry(key);
+        if (metrics != null) {
+            metrics.recordGet(e != null, probes);
         }
-        return null;
+        return e != null ? e.value : null;
+    }
+
+    /**
+     * Starts collecting metrics for this map, if not already collecting, and
+     * returns them. Until this is called, the only cost of metrics on each
+     * operation is a null check.
+     * @return the metrics of this map
+     */
+    public MyHashMapMetrics enableMetrics() {
+        if (metrics == null) {
+            metrics = new MyHashMapMetrics();
+        }
+        return metrics;
+    }
+
+    /**
+     * Stops collecting metrics for this map.
+     */
+    public void disableMetrics() {
+        metrics = null;
     }
 
+    /**
+     * Returns the metrics of this map, or null if they are not enabled.
+     * @return the metrics of this map, or null if they are not enabled
+     */
+    public MyHashMapMetrics getMetrics() {
+        return metrics;
+    }
 
     /**
      * Associates the specified value with the specified key in this map. If the
@@ -78,70 +169,328 @@ public class MyHashMap<K extends Comparable<K>, V> implements MyMap<K, V> {
      */
     @Override
     public V put(K key, V value) {
-        int x = key.hashCode();
-        int index = x % primes[primeIndex];
-        if (table[index] == null) {
-            numEntries++;
-            Entry<K, V> entry = new Entry<>(key, value);
-            table[index] = entry;
-            if (getLoadFactor() > MAX_LOAD_FACTOR && getTableSize() != 222461) {      // rehash
-                    rehash();
-            }
-            return null;
-        } else if (table[index].key != null && table[index].key.equals(key)) {     // replace the value
-            V oldValue = table[index].value;
-            table[index].value = value;
+        migrateBuckets();
+        Entry<K, V> e = findEntry(key);
+        if (e != null) {                // replace the value
+            V oldValue = e.value;
+            e.value = value;
             return oldValue;
-        } else if (table[index].key != null && !table[index].key.equals(key)) {
-            Entry<K, V> E = table[index];
-            for (int i = 1; i < findlistlen(index); i++) {
-                E = E.next;
-                if (E.key.equals(key)) {                // replace the value
-                    V oldValue = E.value;
-                    E.value = value;
-                    return oldValue;
-                }
+        }
+        addEntry(new Entry<>(key, value));
+        numEntries++;
+        if (getLoadFactor() > MAX_LOAD_FACTOR) {      // rehash
+            rehash();
+        }
+        return null;
+    }
+
+    /**
+     * Copies all of the mappings from the specified map into this map. The
+     * table is grown at most once, before any mapping is inserted.
+     * @param map the mappings to be stored in this map
+     */
+    public void putAll(MyHashMap<K, V> map) {
+        ensureCapacity(numEntries + map.size());
+        Iterator<Entry<K, V>> iter = map.iterator();
+        while (iter.hasNext()) {
+            Entry<K, V> e = iter.next();
+            putWithoutRehash(e.key, e.value);
+        }
+    }
+
+    /**
+     * Copies all of the given key-value pairs into this map. The table is
+     * grown at most once, before any pair is inserted.
+     * @param pairs the key-value pairs to be stored in this map
+     */
+    public void putAll(Pair<K, V>[] pairs) {
+        ensureCapacity(numEntries + pairs.length);
+        for (Pair<K, V> pair : pairs) {
+            putWithoutRehash(pair.key, pair.value);
+        }
+    }
+
+    /**
+     * Grows the table in a single step, if needed, so that it can hold
+     * expectedSize entries without rehashing.
+     * @param expectedSize the number of entries the map must hold
+     */
+    private void ensureCapacity(int expectedSize) {
+        if (oldTable != null) {
+            finishRehash();
+        }
+        int newSize = tableSizeFor(expectedSize);
+        if (newSize > table.length) {
+            long start = metrics != null ? System.nanoTime() : 0;
+            resize(newSize);
+            finishRehash();
+            if (metrics != null) {
+                metrics.recordRehashPause(System.nanoTime() - start);
             }
-            // collision, use chaining to solve
+        }
+    }
+
+    /**
+     * Same as put, but never checks the load factor. The caller must have
+     * made room for the entry.
+     */
+    private void putWithoutRehash(K key, V value) {
+        Entry<K, V> e = findEntry(key);
+        if (e != null) {
+            e.value = value;
+        } else {
+            addEntry(new Entry<>(key, value));
             numEntries++;
-            Entry<K, V> old_entry = table[index];
-            table[index] = new Entry<>(key, value);
-            table[index].next = old_entry;
-            if (getLoadFactor() > MAX_LOAD_FACTOR && getTableSize() != 222461) {       // rehash
-                    rehash();
-            }
         }
-        return null;
     }
 
+    /**
+     * Returns the Entry holding the specified key, or null if there is none.
+     * While an incremental rehash is in progress, the key's bucket in the old
+     * table is searched as well. Leaves the number of chain entries examined
+     * in probes.
+     * @param key the key to search for
+     * @return the Entry holding the key, or null if there is none
+     */
+    private Entry<K, V> findEntry(K key) {
+        probes = 0;
+        Entry<K, V> e = find(table, trees, indexFor(key), key);
+        if (e == null && oldTable != null) {
+            e = find(oldTable, oldTrees, indexFor(key, oldTable.length), key);
+        }
+        return e;
+    }
+
+    /**
+     * Returns the Entry holding the specified key in the given bucket, which
+     * is either a chain or a tree, or null if there is none. Adds the number
+     * of chain entries examined to probes, or sets it to -1 for a tree.
+     * @param buckets the chains of the table containing the bucket
+     * @param bins    the trees of the table containing the bucket, or null
+     * @param index   the index of the bucket
+     * @param key     the key to search for
+     * @return the Entry holding the key, or null if there is none
+     */
+    private Entry<K, V> find(Entry<K, V>[] buckets, TreeBin<K, V>[] bins,
+                             int index, K key) {
+        if (bins != null && bins[index] != null) {
+            // A tree holds no two keys that compare as equal, but the key
+            // may still compare as equal to a different key in it.
+            Entry<K, V> e = bins[index].get(key);
+            probes = -1;
+            return e != null && key.equals(e.key) ? e : null;
+        }
+        int examined = 0;
+        Entry<K, V> e = buckets[index];
+        while (e != null) {
+            examined++;
+            if (key.equals(e.key)) {
+                break;
+            }
+            e = e.next;
+        }
+        if (probes >= 0) {
+            probes += examined;
+        }
+        return e;
+    }
 
+    /**
+     * Adds an Entry whose key is not in the map to its bucket in the current
+     * table. A new Entry goes to the front of the chain, and a chain that
+     * grows past TREEIFY_THRESHOLD is converted into a tree, unless two of
+     * its keys compare as equal without being equal. A tree would only have
+     * room for one of them, so such a bucket stays a chain, and a tree that
+     * receives such a key becomes a chain again.
+     * @param e the Entry to add
+     */
     @SuppressWarnings("unchecked")
-    private void rehash() {
-            primeIndex = primeIndex + 1;
-            Entry<K, V>[] new_table = new Entry[primes[primeIndex]];
-            Iterator<Entry<K, V>> iter = this.iterator();
-            while (iter.hasNext()) {
-                Entry<K, V> e = iter.next();
-                int x = e.key.hashCode();
-                int index = x % primes[primeIndex];
-                if (new_table[index] == null) {
-                    Entry<K, V> entry = new Entry<>(e.key, e.value);
-                    new_table[index] = entry;
-                } else {               // collision, use chaining to solve
-                    Entry<K, V> old_entry = new_table[index];
-                    new_table[index] = new Entry<>(e.key, e.value);
-                    new_table[index].next = old_entry;
+    private void addEntry(Entry<K, V> e) {
+        int index = indexFor(e.key);
+        if (trees != null && trees[index] != null) {
+            if (trees[index].get(e.key) == null) {
+                e.next = null;
+                trees[index].put(e.key, e);
+                return;
+            }
+            table[index] = trees[index].toChain();
+            trees[index] = null;
+        }
+        e.next = table[index];
+        table[index] = e;
+        int length = 0;
+        for (Entry<K, V> c = e; c != null && length <= TREEIFY_THRESHOLD;
+             c = c.next) {
+            length++;
+        }
+        if (length > TREEIFY_THRESHOLD) {
+            TreeBin<K, V> bin = TreeBin.of(table[index]);
+            if (bin != null) {
+                if (trees == null) {
+                    trees = new TreeBin[table.length];
                 }
+                trees[index] = bin;
+                table[index] = null;
             }
-            table = new_table;
+        }
+    }
+
+
+    @SuppressWarnings("unchecked")
+    private void rehash() {
+        long start = metrics != null ? System.nanoTime() : 0;
+        if (oldTable != null) {
+            finishRehash();
+        }
+        int newSize = nextTableSize();
+        if (newSize <= table.length) {
+            return;     // the table cannot grow any further
+        }
+        resize(newSize);
+        if (!incrementalRehash) {
+            finishRehash();
+        }
+        if (metrics != null) {
+            metrics.recordRehashPause(System.nanoTime() - start);
+        }
+    }
 
+    /**
+     * Replaces the table with an empty one of the given size. The Entries of
+     * the current table are left in the old table, to be moved over by
+     * moveBuckets.
+     * @param newSize the number of buckets in the new table
+     */
+    @SuppressWarnings("unchecked")
+    private void resize(int newSize) {
+        if (metrics != null) {
+            metrics.recordResize(newSize);
+        }
+        oldTable = table;
+        oldTrees = trees;
+        table = new Entry[newSize];
+        trees = null;
+        migrateIndex = 0;
     }
 
+    /**
+     * Moves the next few buckets of the old table into the new one if an
+     * incremental rehash is in progress.
+     */
+    private void migrateBuckets() {
+        if (oldTable != null) {
+            long start = metrics != null ? System.nanoTime() : 0;
+            moveBuckets(MIGRATION_STEP);
+            if (metrics != null) {
+                metrics.recordRehashPause(System.nanoTime() - start);
+            }
+        }
+    }
 
+    /**
+     * Moves all remaining buckets of the old table into the new one.
+     */
+    private void finishRehash() {
+        moveBuckets(oldTable.length - migrateIndex);
+    }
+
+    /**
+     * Moves up to count buckets of the old table into the new table. The
+     * existing Entry nodes are relinked rather than copied. Once the last
+     * bucket has moved, the old table is released.
+     * @param count the maximum number of buckets to move
+     */
+    private void moveBuckets(int count) {
+        int end = migrateIndex + Math.min(count, oldTable.length - migrateIndex);
+        for (; migrateIndex < end; migrateIndex++) {
+            Entry<K, V> e;
+            if (oldTrees != null && oldTrees[migrateIndex] != null) {
+                e = oldTrees[migrateIndex].toChain();
+                oldTrees[migrateIndex] = null;
+            } else {
+                e = oldTable[migrateIndex];
+                oldTable[migrateIndex] = null;
+            }
+            while (e != null) {
+                Entry<K, V> next = e.next;
+                addEntry(e);
+                e = next;
+            }
+        }
+        if (migrateIndex == oldTable.length) {
+            oldTable = null;
+            oldTrees = null;
+        }
+    }
 
+    /**
+     * Returns the number of buckets needed to hold expectedSize entries
+     * without exceeding MAX_LOAD_FACTOR: the first size in the primes table
+     * that is large enough, or else the smallest large enough prime.
+     * @param expectedSize the number of entries to hold
+     * @return the number of buckets needed to hold expectedSize entries
+     */
+    private static int tableSizeFor(int expectedSize) {
+        long needed = (long)Math.ceil(expectedSize / MAX_LOAD_FACTOR);
+        for (int prime : primes) {
+            if (prime >= needed) {
+                return prime;
+            }
+        }
+        return needed >= MAX_TABLE_SIZE ? MAX_TABLE_SIZE : nextPrime((int)needed);
+    }
 
+    /**
+     * Returns the number of buckets to use on the next rehash. Sizes are
+     * taken from the primes table while it lasts. Past its end, the next size
+     * is the smallest prime greater than twice the current size, so the table
+     * keeps growing and the load factor stays under MAX_LOAD_FACTOR.
+     * @return the number of buckets to use on the next rehash
+     */
+    private int nextTableSize() {
+        for (int prime : primes) {
+            if (prime > table.length) {
+                return prime;
+            }
+        }
+        if (table.length > (MAX_TABLE_SIZE - 1) / 2) {
+            return MAX_TABLE_SIZE;
+        }
+        return nextPrime(2 * table.length + 1);
+    }
 
+    /**
+     * Returns the smallest prime greater than or equal to n, or
+     * MAX_TABLE_SIZE if there is no such prime below that limit.
+     * @param n the number at which to start searching
+     * @return the smallest prime greater than or equal to n
+     */
+    private static int nextPrime(int n) {
+        if (n % 2 == 0) {
+            n++;
+        }
+        for (; n > 0 && n < MAX_TABLE_SIZE; n += 2) {
+            if (isPrime(n)) {
+                return n;
+            }
+        }
+        return MAX_TABLE_SIZE;
+    }
 
+    private static boolean isPrime(int n) {
+        if (n < 2) {
+            return false;
+        }
+        if (n % 2 == 0) {
+            return n == 2;
+        }
+        for (int d = 3; d <= n / d; d += 2) {
+            if (n % d == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
 
     /**
      * Removes the mapping for a key from this map if it is present.
@@ -152,63 +501,78 @@ public class MyHashMap<K extends Comparable<K>, V> implements MyMap<K, V> {
 
     @Override
     public V remove(K key) {
-        Iterator<Entry<K, V>> iter = this.iterator();
-        while (iter.hasNext()) {
-            Entry<K, V> e = iter.next();
-            if (key.equals(e.key)) {
-                numEntries--;
-                V oldValue = e.value;
-                if (e.next == null) {
-                    if (removehelper(e.key) != -1) {
-                    int index = removehelper(e.key);
-                        if (findlistlen(index) == 1){
-                            table[index] = null;}
-                        else {
-                            Entry<K,V> c = table[index];
-                            for(int i = 1; i < findlistlen(index) - 1; i++){
-                                c=c.next;
-                            }
-                            c.next = null;
-                        }
-                    return oldValue;
-                    }
-
-                } else {      // it means that the Entry is on a chain, and not the last one
-                    e.key = e.next.key;
-                    e.value = e.next.value;
-                    e.next = e.next.next;
-                    return oldValue;
-                }
-            }
+        migrateBuckets();
+        Entry<K, V> e = unlink(table, trees, indexFor(key), key);
+        if (e == null && oldTable != null) {
+            e = unlink(oldTable, oldTrees, indexFor(key, oldTable.length), key);
         }
-        return null;
-    }
-    private int removehelper(K key) {
-        for(int i = 0; i < table.length; i++){
-            Entry<K,V> chain = table[i];
-            for(int j = 0; j < findlistlen(i); j++){
-                if (chain.key != null && chain.key.equals(key)){
-                    return i;
-                }else chain = chain.next;
-            }
+        if (e == null) {
+            return null;
         }
-        return -1;
+        numEntries--;
+        return e.value;
     }
 
-    private int findlistlen(int index){
-        int count = 1;
-        if (table[index] != null) {
-            Entry<K, V> cur = table[index];
-            while (cur.next != null) {
-                count++;
-                cur = cur.next;
+    /**
+     * Unlinks the Entry holding the specified key from the given bucket. A
+     * tree that shrinks to UNTREEIFY_THRESHOLD entries becomes a chain again.
+     * @param buckets the chains of the table containing the bucket
+     * @param bins    the trees of the table containing the bucket, or null
+     * @param index   the index of the bucket
+     * @param key     the key whose Entry is to be unlinked
+     * @return the unlinked Entry, or null if the key is not in the bucket
+     */
+    private Entry<K, V> unlink(Entry<K, V>[] buckets, TreeBin<K, V>[] bins,
+                               int index, K key) {
+        if (bins != null && bins[index] != null) {
+            Entry<K, V> e = bins[index].get(key);
+            if (e == null || !key.equals(e.key)) {
+                return null;
+            }
+            bins[index].remove(key);
+            if (bins[index].size() <= UNTREEIFY_THRESHOLD) {
+                buckets[index] = bins[index].toChain();
+                bins[index] = null;
             }
-            return count;
+            return e;
         }
-        return -1;
+        Entry<K, V> prev = null, e = buckets[index];
+        while (e != null) {
+            if (key.equals(e.key)) {
+                if (prev == null) {      // unlink the head of the chain
+                    buckets[index] = e.next;
+                } else {
+                    prev.next = e.next;
+                }
+                return e;
+            }
+            prev = e;
+            e = e.next;
+        }
+        return null;
     }
 
+    /**
+     * Returns the index of the bucket in which the specified key belongs.
+     * @param key the key to hash
+     * @return the index of the bucket in which the key belongs
+     */
+    private int indexFor(K key) {
+        return indexFor(key, table.length);
+    }
 
+    /**
+     * Returns the index of the bucket in which the specified key belongs in a
+     * table with the given number of buckets. The sign bit of the hash code is
+     * cleared first, so keys with negative hash codes still map to a valid
+     * index.
+     * @param key       the key to hash
+     * @param tableSize the number of buckets in the table
+     * @return the index of the bucket in which the key belongs
+     */
+    private static int indexFor(Object key, int tableSize) {
+        return (key.hashCode() & 0x7fffffff) % tableSize;
+    }
 
     /**
      * Returns the load factor of this MyHashMap, defined as the number of
@@ -216,29 +580,49 @@ public class MyHashMap<K extends Comparable<K>, V> implements MyMap<K, V> {
      * @return the load factor of this MyHashMap
      */
     public double getLoadFactor() {
-        return (double)numEntries / primes[primeIndex];
+        return (double)numEntries / table.length;
     }
 
     /**
      * Returns the maximum length of a chain in this MyHashMap. This value
      * provides information about how well the hash function is working. With a
      * max load factor of 0.75, we would like to see a max chain length close
-     * to 1.
+     * to 1. For a bucket that has been converted into a tree, the number of
+     * nodes on its longest search path is used. During an incremental rehash,
+     * the buckets still in the old table are measured as well.
      * @return the maximum length of a chain in this MyHashMap
      */
     public int computeMaxChainLength() {
+        int maxChainLength = maxChainLength(table, trees);
+        if (oldTable != null) {
+            maxChainLength = Math.max(maxChainLength,
+                                      maxChainLength(oldTable, oldTrees));
+        }
+        return maxChainLength;
+    }
+
+    /**
+     * Returns the maximum length of a chain, or of a tree's longest search
+     * path, among the given buckets.
+     * @param buckets the chains of a table
+     * @param bins    the trees of the same table, or null
+     * @return the maximum length of a chain among the buckets
+     */
+    private int maxChainLength(Entry<K, V>[] buckets, TreeBin<K, V>[] bins) {
         int maxChainLength = 0;
-        for (Entry<K, V> chain : table) {
-            if (chain != null) {
-                int currentChainLength = 0;
-                Entry<K, V> chainPtr = chain;
+        for (int i = 0; i < buckets.length; i++) {
+            int currentChainLength = 0;
+            if (bins != null && bins[i] != null) {
+                currentChainLength = bins[i].height() + 1;
+            } else {
+                Entry<K, V> chainPtr = buckets[i];
                 while (chainPtr != null) {
                     currentChainLength++;
                     chainPtr = chainPtr.next;
                 }
-                if (currentChainLength > maxChainLength) {
-                    maxChainLength = currentChainLength;
-                }
+            }
+            if (currentChainLength > maxChainLength) {
+                maxChainLength = currentChainLength;
             }
         }
         return maxChainLength;
@@ -246,7 +630,8 @@ public class MyHashMap<K extends Comparable<K>, V> implements MyMap<K, V> {
 
     /**
      * Returns a string representation of this MyHashMap for tables with up
-     * to and including 1000 entries.
+     * to and including 1000 entries. During an incremental rehash, the
+     * buckets still in the old table follow those of the new table.
      * @return a string representation of this MyHashMap
      */
     public String toString() {
@@ -256,18 +641,54 @@ public class MyHashMap<K extends Comparable<K>, V> implements MyMap<K, V> {
         if (numEntries == 0) {
             return "HashMap is empty.";
         }
+        int maxIndex = lastUsedBucket(table, trees);
+        if (oldTable != null) {
+            maxIndex = Math.max(maxIndex, lastUsedBucket(oldTable, oldTrees));
+        }
+        int maxIndexWidth = String.valueOf(maxIndex).length();
+        StringBuilder builder = new StringBuilder();
+        String newLine = System.getProperty("line.separator");
+        appendBuckets(builder, table, trees, maxIndexWidth);
+        if (oldTable != null) {
+            builder.append("old table:");
+            builder.append(newLine);
+            appendBuckets(builder, oldTable, oldTrees, maxIndexWidth);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Returns the index of the last non-empty bucket, or -1 if all the
+     * buckets are empty.
+     */
+    private int lastUsedBucket(Entry<K, V>[] buckets, TreeBin<K, V>[] bins) {
         int maxIndex;
-        for (maxIndex = table.length - 1; maxIndex >= 0; maxIndex--) {
-            if (table[maxIndex] != null) {
+        for (maxIndex = buckets.length - 1; maxIndex >= 0; maxIndex--) {
+            if (buckets[maxIndex] != null
+                    || bins != null && bins[maxIndex] != null) {
                 break;
             }
         }
-        int maxIndexWidth = String.valueOf(maxIndex).length();
-        StringBuilder builder = new StringBuilder();
+        return maxIndex;
+    }
+
+    /**
+     * Appends one line for each non-empty bucket, with its index right
+     * aligned to maxIndexWidth characters.
+     */
+    private void appendBuckets(StringBuilder builder, Entry<K, V>[] buckets,
+                               TreeBin<K, V>[] bins, int maxIndexWidth) {
         String newLine = System.getProperty("line.separator");
-        for (int i = 0; i < table.length; i++) {
-            Entry<K, V> chain = table[i];
-            if (chain != null) {
+        for (int i = 0; i < buckets.length; i++) {
+            Entry<K, V> chain = buckets[i];
+            if (bins != null && bins[i] != null) {
+                int indexWidth = String.valueOf(i).length();
+                builder.append(" ".repeat(maxIndexWidth - indexWidth));
+                builder.append(i);
+                builder.append(": tree ");
+                builder.append(Arrays.toString(bins[i].entries()));
+                builder.append(newLine);
+            } else if (chain != null) {
                 int indexWidth = String.valueOf(i).length();
                 builder.append(" ".repeat(maxIndexWidth - indexWidth));
                 builder.append(i);
@@ -282,12 +703,13 @@ public class MyHashMap<K extends Comparable<K>, V> implements MyMap<K, V> {
                 builder.append(newLine);
             }
         }
-        return builder.toString();
     }
 
     /**
      * Returns an iterator over the Entries in this MyHashMap in the order
-     * in which they appear in the table.
+     * in which they appear in the table. The Entries of a bucket that has been
+     * converted into a tree are returned in key order. During an incremental
+     * rehash, the Entries still in the old table are returned first.
      * @return an iterator over the Entries in this MyHashMap
      */
     public Iterator<Entry<K, V>> iterator() {
@@ -295,11 +717,23 @@ public class MyHashMap<K extends Comparable<K>, V> implements MyMap<K, V> {
     }
 
     private class MapItr implements Iterator<Entry<K, V>> {
+        private Entry<K, V>[] buckets;
+        private TreeBin<K, V>[] bins;
         private Entry<K, V> current;
-        private int index;
+        // The Entries of the current bucket in key order, if it is a tree.
+        private Entry<K, V>[] treeEntries;
+        private int index, treeIndex;
 
         MapItr() {
-            advanceToNextEntry();
+            if (oldTable != null) {
+                buckets = oldTable;
+                bins = oldTrees;
+            } else {
+                buckets = table;
+                bins = trees;
+            }
+            index = -1;
+            advanceToNextBucket();
         }
 
         @Override
@@ -310,12 +744,16 @@ public class MyHashMap<K extends Comparable<K>, V> implements MyMap<K, V> {
         @Override
         public Entry<K, V> next() {
             Entry<K, V> e = current;
-            if (current.next == null) {
-                index++;
-                advanceToNextEntry();
+            if (treeEntries != null) {
+                treeIndex++;
+                current = treeIndex < treeEntries.length
+                          ? treeEntries[treeIndex] : null;
             } else {
                 current = current.next;
             }
+            if (current == null) {
+                advanceToNextBucket();
+            }
             return e;
         }
 
@@ -324,11 +762,190 @@ public class MyHashMap<K extends Comparable<K>, V> implements MyMap<K, V> {
             throw new UnsupportedOperationException();
         }
 
-        private void advanceToNextEntry() {
-            while (index < table.length && table[index] == null) {
+        private void advanceToNextBucket() {
+            treeEntries = null;
+            while (true) {
                 index++;
+                if (index == buckets.length) {
+                    if (buckets == table) {
+                        current = null;
+                        return;
+                    }
+                    buckets = table;        // move on from the old table
+                    bins = trees;
+                    index = -1;
+                } else if (bins != null && bins[index] != null) {
+                    treeEntries = bins[index].entries();
+                    treeIndex = 0;
+                    current = treeEntries[0];
+                    return;
+                } else if (buckets[index] != null) {
+                    current = buckets[index];
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * A bucket whose chain grew past TREEIFY_THRESHOLD. It maps each key in
+     * the bucket to its Entry in a BSTMap, ordered by the keys' compareTo, so
+     * a lookup in the bucket takes O(log n) steps instead of O(n). No two
+     * keys in a TreeBin compare as equal; MyHashMap keeps buckets whose keys
+     * tie under compareTo as chains.
+     * <p>
+     * The tree is kept balanced as a scapegoat tree. When an insertion lands
+     * deeper than log base 1/ALPHA of the size, the lowest ancestor whose
+     * subtree is out of balance is rebuilt with createBST. Once removals
+     * shrink the tree below ALPHA times its peak size, the whole tree is
+     * rebuilt.
+     */
+    private static class TreeBin<K extends Comparable<K>, V>
+            extends BSTMap<K, Entry<K, V>> {
+        // A subtree is out of balance when one child holds more than ALPHA
+        // of its nodes.
+        private static final double ALPHA = 2.0 / 3.0;
+        private int maxSize;
+
+        private TreeBin(Pair<K, Entry<K, V>>[] sortedPairs) {
+            super(sortedPairs, true);
+            maxSize = size;
+        }
+
+        /**
+         * Returns a balanced tree of the Entries in the given chain, or null,
+         * leaving the chain as it was, if two of its keys compare as equal.
+         * @param chain the first Entry of the chain
+         * @return a tree of the Entries, or null if two keys compare as equal
+         */
+        @SuppressWarnings("unchecked")
+        static <K extends Comparable<K>, V> TreeBin<K, V> of(
+                Entry<K, V> chain) {
+            int n = 0;
+            for (Entry<K, V> e = chain; e != null; e = e.next) {
+                n++;
+            }
+            Pair<K, Entry<K, V>>[] pairs = new Pair[n];
+            Entry<K, V> e = chain;
+            for (int i = 0; i < n; i++) {
+                pairs[i] = new Pair<>(e.key, e);
+                e = e.next;
+            }
+            Arrays.sort(pairs, (a, b) -> a.key.compareTo(b.key));
+            for (int i = 1; i < n; i++) {
+                if (pairs[i - 1].key.compareTo(pairs[i].key) == 0) {
+                    return null;
+                }
+            }
+            for (Pair<K, Entry<K, V>> pair : pairs) {
+                pair.value.next = null;
+            }
+            return new TreeBin<>(pairs);
+        }
+
+        @Override
+        public Entry<K, V> put(K key, Entry<K, V> value) {
+            int oldSize = size;
+            Entry<K, V> oldValue = super.put(key, value);
+            if (size > oldSize) {
+                maxSize = Math.max(maxSize, size);
+                Node<K, Entry<K, V>> x = iterativeSearch(key);
+                int depth = 0;
+                for (Node<K, Entry<K, V>> n = x; n.parent != null;
+                     n = n.parent) {
+                    depth++;
+                }
+                if (depth > Math.log(size) / Math.log(1 / ALPHA)) {
+                    rebuildAbove(x);
+                }
+            }
+            return oldValue;
+        }
+
+        @Override
+        public Entry<K, V> remove(K key) {
+            int oldSize = size;
+            Entry<K, V> oldValue = super.remove(key);
+            if (size < oldSize && size < ALPHA * maxSize) {
+                if (root != null) {
+                    rebuild(root, size);
+                }
+                maxSize = size;
+            }
+            return oldValue;
+        }
+
+        /**
+         * Finds the lowest ancestor of x whose subtree is out of balance and
+         * rebuilds that subtree.
+         */
+        private void rebuildAbove(Node<K, Entry<K, V>> x) {
+            Node<K, Entry<K, V>> child = x;
+            int childSize = 1;
+            for (Node<K, Entry<K, V>> p = x.parent; p != null;
+                 child = p, p = p.parent) {
+                Node<K, Entry<K, V>> sibling = child == p.left ? p.right : p.left;
+                int parentSize = childSize + 1 + subtreeSize(sibling);
+                if (childSize > ALPHA * parentSize) {
+                    rebuild(p, parentSize);
+                    return;
+                }
+                childSize = parentSize;
             }
-            current = index < table.length ? table[index] : null;
+        }
+
+        private int subtreeSize(Node<K, Entry<K, V>> n) {
+            return n == null ? 0 : 1 + subtreeSize(n.left) + subtreeSize(n.right);
+        }
+
+        /**
+         * Replaces the subtree rooted at n, which has count nodes, with a
+         * balanced subtree of the same mappings.
+         */
+        @SuppressWarnings("unchecked")
+        private void rebuild(Node<K, Entry<K, V>> n, int count) {
+            Pair<K, Entry<K, V>>[] pairs = new Pair[count];
+            collect(n, pairs, 0);
+            size -= count;      // createBST counts the nodes again
+            transplant(n, createBST(pairs, 0, count - 1));
+        }
+
+        private int collect(Node<K, Entry<K, V>> n, Pair<K, Entry<K, V>>[] pairs,
+                            int i) {
+            if (n != null) {
+                i = collect(n.left, pairs, i);
+                pairs[i++] = new Pair<>(n.key, n.value);
+                i = collect(n.right, pairs, i);
+            }
+            return i;
+        }
+
+        /**
+         * Returns the Entries of this tree in key order.
+         */
+        @SuppressWarnings("unchecked")
+        Entry<K, V>[] entries() {
+            Entry<K, V>[] entries = new Entry[size];
+            int i = 0;
+            if (root != null) {
+                for (Node<K, Entry<K, V>> n = treeMinimum(root); n != null;
+                     n = successor(n)) {
+                    entries[i++] = n.value;
+                }
+            }
+            return entries;
+        }
+
+        /**
+         * Links the Entries of this tree into a chain in key order and
+         * returns the first one.
+         */
+        Entry<K, V> toChain() {
+            Entry<K, V>[] entries = entries();
+            for (int i = 0; i < entries.length; i++) {
+                entries[i].next = i + 1 < entries.length ? entries[i + 1] : null;
+            }
+            return entries.length > 0 ? entries[0] : null;
         }
     }
 
@@ -403,7 +1020,345 @@ public class MyHashMap<K extends Comparable<K>, V> implements MyMap<K, V> {
         System.out.println("Max chain length: " + map.computeMaxChainLength());
         System.out.println();
         System.out.println("Expected sum: " + expectedSum);
+        System.out.println();
+
+        benchmarkLookupAndRemove();
+        System.out.println();
+
+        demonstrateUnboundedGrowth();
+        System.out.println();
+
+        benchmarkPutLatency();
+        System.out.println();
+
+        demonstrateTreeifiedBuckets();
+        System.out.println();
+
+        checkTiedKeys();
+        System.out.println();
+
+        benchmarkBulkLoad();
+        System.out.println();
+
+        demonstrateMetrics();
+        System.out.println();
+
+        checkGetDuringIteration();
+    }
+
+    /**
+     * Iterates over a map caught in the middle of an incremental rehash,
+     * calling get, toString and computeMaxChainLength on every step, and
+     * checks that each key is still returned exactly once.
+     */
+    private static void checkGetDuringIteration() {
+        int n = 2674;
+        MyHashMap<Integer, Integer> map = new MyHashMap<>(true);
+        for (int i = 0; i < n; i++) {
+            map.put(i, i);
+        }
+        if (map.oldTable == null) {
+            throw new IllegalStateException("No rehash in progress.");
+        }
+        boolean[] seen = new boolean[n];
+        int count = 0;
+        Iterator<Entry<Integer, Integer>> iter = map.iterator();
+        while (iter.hasNext()) {
+            Entry<Integer, Integer> e = iter.next();
+            if (seen[e.key] || !e.value.equals(map.get(e.key))) {
+                throw new IllegalStateException("Entry returned twice: " + e);
+            }
+            seen[e.key] = true;
+            count++;
+            map.toString();
+            map.computeMaxChainLength();
+        }
+        if (count != n) {
+            throw new IllegalStateException(
+                    "Iterator returned " + count + " of " + n + " entries.");
+        }
+        System.out.println("get during an incremental rehash iteration: OK");
+    }
+
+    /**
+     * Runs the same workload with and without metrics, and prints the
+     * metrics collected.
+     */
+    private static void demonstrateMetrics() {
+        int n = 200000;
+        long[] times = new long[2];
+        MyHashMapMetrics metrics = null;
+        for (int round = 0; round < 3; round++) {
+            for (int enabled = 0; enabled < 2; enabled++) {
+                MyHashMap<Integer, Integer> map = new MyHashMap<>();
+                if (enabled == 1) {
+                    metrics = map.enableMetrics();
+                }
+                long start = System.nanoTime();
+                for (int i = 0; i < n; i++) {
+                    map.put(i, i);
+                }
+                for (int i = 0; i < 2 * n; i++) {
+                    map.get(i);
+                }
+                times[enabled] = System.nanoTime() - start;
+            }
+        }
+        System.out.printf("Metrics disabled: %6.1f ms\n", times[0] / 1e6);
+        System.out.printf("Metrics enabled : %6.1f ms\n", times[1] / 1e6);
+        System.out.println("Hit ratio       : " + metrics.getHitRatio());
+        System.out.println("Probe histogram : "
+                           + Arrays.toString(metrics.getProbeHistogram()));
+        System.out.println("Rehash count    : " + metrics.getRehashCount());
+        System.out.printf("Rehash time     : %.3f ms total, %.3f ms max\n",
+                          metrics.getTotalRehashNanos() / 1e6,
+                          metrics.getMaxRehashPauseNanos() / 1e6);
+        System.out.println("Resize bytes    : "
+                           + metrics.getBytesAllocatedByResizes());
+    }
+
+    /**
+     * Compares loading 200,000 entries one put at a time into a default
+     * map, into a pre-sized map, and with a single putAll.
+     */
+    @SuppressWarnings("unchecked")
+    private static void benchmarkBulkLoad() {
+        int n = 200000;
+        Pair<Integer, Integer>[] pairs = new Pair[n];
+        for (int i = 0; i < n; i++) {
+            pairs[i] = new Pair<>(i, i);
+        }
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            MyHashMap<Integer, Integer> grown = new MyHashMap<>();
+            for (Pair<Integer, Integer> pair : pairs) {
+                grown.put(pair.key, pair.value);
+            }
+            long grownTime = System.nanoTime() - start;
+            start = System.nanoTime();
+            MyHashMap<Integer, Integer> presized = new MyHashMap<>(n);
+            for (Pair<Integer, Integer> pair : pairs) {
+                presized.put(pair.key, pair.value);
+            }
+            long presizedTime = System.nanoTime() - start;
+            start = System.nanoTime();
+            MyHashMap<Integer, Integer> bulk = new MyHashMap<>();
+            bulk.putAll(pairs);
+            long bulkTime = System.nanoTime() - start;
+            if (round == 2) {   // the first rounds warm up the JIT
+                System.out.printf("put, default size : %6.1f ms, table size %d\n",
+                                  grownTime / 1e6, grown.getTableSize());
+                System.out.printf("put, pre-sized    : %6.1f ms, table size %d\n",
+                                  presizedTime / 1e6, presized.getTableSize());
+                System.out.printf("putAll            : %6.1f ms, table size %d\n",
+                                  bulkTime / 1e6, bulk.getTableSize());
+            }
+        }
+    }
+
+    /**
+     * A key whose hash codes collide far more often than they should.
+     */
+    private static class CollidingKey implements Comparable<CollidingKey> {
+        private final int id;
+
+        CollidingKey(int id) {
+            this.id = id;
+        }
+
+        @Override
+        public int hashCode() {
+            return id % 4;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof CollidingKey && ((CollidingKey)o).id == id;
+        }
+
+        @Override
+        public int compareTo(CollidingKey other) {
+            return Integer.compare(id, other.id);
+        }
+    }
+
+    /**
+     * A key whose compareTo ignores its tag, so that keys with the same id
+     * compare as equal without being equal. All keys share one hash code.
+     */
+    private static class LooseKey implements Comparable<LooseKey> {
+        private final int id, tag;
+
+        LooseKey(int id, int tag) {
+            this.id = id;
+            this.tag = tag;
+        }
+
+        @Override
+        public int hashCode() {
+            return 0;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof LooseKey && ((LooseKey)o).id == id
+                   && ((LooseKey)o).tag == tag;
+        }
+
+        @Override
+        public int compareTo(LooseKey other) {
+            return Integer.compare(id, other.id);
+        }
+    }
+
+    /**
+     * Puts keys that tie under compareTo into one bucket, both before and
+     * after the bucket has become a tree, and checks that none of them
+     * replaces another.
+     */
+    private static void checkTiedKeys() {
+        int n = 20;
+        MyHashMap<LooseKey, Integer> map = new MyHashMap<>();
+        for (int i = 0; i < n; i++) {       // treeified by now
+            map.put(new LooseKey(i, 0), i);
+        }
+        for (int i = 0; i < n; i++) {       // each ties with a key above
+            map.put(new LooseKey(i, 1), -i);
+        }
+        for (int i = 0; i < n; i++) {
+            if (map.get(new LooseKey(i, 0)) != i
+                    || map.get(new LooseKey(i, 1)) != -i
+                    || map.get(new LooseKey(i, 2)) != null) {
+                throw new IllegalStateException("Tied key " + i + " lost.");
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            if (map.remove(new LooseKey(i, 2)) != null
+                    || map.remove(new LooseKey(i, 1)) != -i) {
+                throw new IllegalStateException("Tied key " + i + " lost.");
+            }
+        }
+        if (map.size() != n || map.get(new LooseKey(n - 1, 0)) != n - 1) {
+            throw new IllegalStateException("Wrong size " + map.size());
+        }
+        System.out.println("Keys that tie under compareTo: OK");
+    }
+
+    /**
+     * Fills a map with keys that share only four hash codes. Without trees,
+     * each of the four chains would hold a quarter of the keys.
+     */
+    private static void demonstrateTreeifiedBuckets() {
+        MyHashMap<CollidingKey, Integer> map = new MyHashMap<>();
+        int n = 100000;
+        for (int i = 0; i < n; i++) {
+            map.put(new CollidingKey(i), i);
+        }
+        long checksum = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < n; i++) {
+            checksum += map.get(new CollidingKey(i));
+        }
+        double getTime = (double)(System.nanoTime() - start) / n;
+        System.out.println("Colliding keys  : " + map.size());
+        System.out.println("Max chain length: " + map.computeMaxChainLength());
+        System.out.printf("get             : %.1f ns/op%s\n", getTime,
+                          checksum == (long)n * (n - 1) / 2 ? "" : " (mismatch)");
+        for (int i = 0; i < n; i++) {
+            map.remove(new CollidingKey(i));
+        }
+        System.out.println("Size            : " + map.size());
+        System.out.println("Max chain length: " + map.computeMaxChainLength());
+    }
+
+    /**
+     * Compares the slowest put with stop-the-world and incremental
+     * rehashing. Puts that were interrupted by a garbage collection are left
+     * out, since those pauses affect both modes alike. With incremental
+     * rehashing, no put has to move the whole table, so the slowest put
+     * should get much faster.
+     */
+    private static void benchmarkPutLatency() {
+        int n = 2000000;
+        for (int round = 0; round < 2; round++) {
+            for (boolean incremental : new boolean[] { false, true }) {
+                MyHashMap<Integer, Integer> map = new MyHashMap<>(incremental);
+                long maxTime = 0, gcCount = gcCount();
+                for (int i = 0; i < n; i++) {
+                    long start = System.nanoTime();
+                    map.put(i, i);
+                    long time = System.nanoTime() - start;
+                    // Every collection pause is longer than this threshold,
+                    // so checking the GC count only for slow puts is enough.
+                    if (time > 100000) {
+                        long count = gcCount();
+                        if (count != gcCount) {
+                            gcCount = count;
+                            continue;
+                        }
+                    }
+                    maxTime = Math.max(maxTime, time);
+                }
+                if (round == 1) {   // the first round warms up the JIT
+                    System.out.printf("%-12s: slowest put without GC %8.3f ms\n",
+                                      incremental ? "Incremental" : "All at once",
+                                      maxTime / 1e6);
+                }
+            }
+        }
+    }
 
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc
+                : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += gc.getCollectionCount();
+        }
+        return count;
+    }
 
+    /**
+     * Grows a map well past the end of the primes table, using keys with
+     * both positive and negative hash codes.
+     */
+    private static void demonstrateUnboundedGrowth() {
+        MyHashMap<Integer, Integer> map = new MyHashMap<>();
+        int n = 1000000;
+        for (int i = 0; i < n; i++) {
+            int key = i % 2 == 0 ? i : -i;
+            map.put(key, i);
+        }
+        System.out.println("Size            : " + map.size());
+        System.out.println("Table size      : " + map.getTableSize());
+        System.out.println("Load factor     : " + map.getLoadFactor());
+        System.out.println("Max chain length: " + map.computeMaxChainLength());
+    }
+
+    /**
+     * Times get and remove at increasing map sizes. With bucket-direct
+     * lookup, the average time per operation should stay roughly constant
+     * as the map grows.
+     */
+    private static void benchmarkLookupAndRemove() {
+        System.out.println("     Entries   get (ns/op)   remove (ns/op)");
+        for (int n = 1000; n <= 200000; n *= 2) {
+            MyHashMap<Integer, Integer> map = new MyHashMap<>();
+            for (int i = 0; i < n; i++) {
+                map.put(i, i);
+            }
+            long checksum = 0;
+            long start = System.nanoTime();
+            for (int i = 0; i < n; i++) {
+                checksum += map.get(i);
+            }
+            double getTime = (double)(System.nanoTime() - start) / n;
+            start = System.nanoTime();
+            for (int i = 0; i < n; i++) {
+                checksum -= map.remove(i);
+            }
+            double removeTime = (double)(System.nanoTime() - start) / n;
+            System.out.printf("%12d %13.1f %16.1f%s\n", n, getTime,
+                              removeTime, checksum == 0 ? "" : "  (mismatch)");
+        }
     }
 }
@@ -0,0 +1,191 @@
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Runtime metrics of a MyHashMap, collected only while enabled with
+ * MyHashMap.enableMetrics(). The counters are LongAdders, which spread
+ * updates over per-thread cells, so recording is cheap and the values can be
+ * read at any time from another thread, for example over JMX.
+ * @author Fengzhe Liu (fl2635)
+ * @version 1.0 October 18, 2026
+ */
+public class MyHashMapMetrics implements MyHashMapMetricsMBean {
+    /**
+     * Number of histogram buckets. Bucket i counts lookups that examined i
+     * entries of a chain; the last bucket counts all longer ones.
+     */
+    public static final int HISTOGRAM_SIZE = 17;
+    // Size estimates for the bucket arrays, assuming compressed references.
+    private static final int ARRAY_HEADER_BYTES = 16, REFERENCE_BYTES = 4;
+
+    private final LongAdder hits = new LongAdder(), misses = new LongAdder();
+    private final LongAdder[] probeHistogram = new LongAdder[HISTOGRAM_SIZE];
+    private final LongAdder treeLookups = new LongAdder();
+    private final LongAdder rehashCount = new LongAdder();
+    private final LongAdder totalRehashNanos = new LongAdder();
+    private final LongAccumulator maxRehashPauseNanos =
+            new LongAccumulator(Math::max, 0);
+    private final LongAdder bytesAllocatedByResizes = new LongAdder();
+
+    MyHashMapMetrics() {
+        for (int i = 0; i < HISTOGRAM_SIZE; i++) {
+            probeHistogram[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Records a get. probes is the number of chain entries examined, or -1
+     * if the bucket was a tree.
+     */
+    void recordGet(boolean hit, int probes) {
+        (hit ? hits : misses).increment();
+        if (probes < 0) {
+            treeLookups.increment();
+        } else {
+            probeHistogram[Math.min(probes, HISTOGRAM_SIZE - 1)].increment();
+        }
+    }
+
+    /**
+     * Records the allocation of a new table with the given number of buckets.
+     */
+    void recordResize(int buckets) {
+        rehashCount.increment();
+        bytesAllocatedByResizes.add(ARRAY_HEADER_BYTES
+                                    + (long)REFERENCE_BYTES * buckets);
+    }
+
+    /**
+     * Records time spent moving entries during one operation.
+     */
+    void recordRehashPause(long nanos) {
+        totalRehashNanos.add(nanos);
+        maxRehashPauseNanos.accumulate(nanos);
+    }
+
+    /**
+     * Returns the number of calls to get that found the key.
+     * @return the number of calls to get that found the key
+     */
+    @Override
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns the number of calls to get that did not find the key.
+     * @return the number of calls to get that did not find the key
+     */
+    @Override
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Returns hits / (hits + misses), or 0 if get has not been called.
+     * @return the fraction of calls to get that found the key
+     */
+    @Override
+    public double getHitRatio() {
+        long h = getHits(), total = h + getMisses();
+        return total == 0 ? 0 : (double)h / total;
+    }
+
+    /**
+     * Returns the probe-length histogram of get. Element i is the number of
+     * lookups that examined i chain entries; the last element counts all
+     * lookups that examined HISTOGRAM_SIZE - 1 or more.
+     * @return the probe-length histogram of get
+     */
+    @Override
+    public long[] getProbeHistogram() {
+        long[] histogram = new long[HISTOGRAM_SIZE];
+        for (int i = 0; i < HISTOGRAM_SIZE; i++) {
+            histogram[i] = probeHistogram[i].sum();
+        }
+        return histogram;
+    }
+
+    /**
+     * Returns the number of calls to get answered by a bucket that had been
+     * converted into a tree. These are not in the probe histogram.
+     * @return the number of calls to get answered by a tree
+     */
+    @Override
+    public long getTreeLookups() {
+        return treeLookups.sum();
+    }
+
+    /**
+     * Returns the number of times the table has been grown.
+     * @return the number of times the table has been grown
+     */
+    @Override
+    public long getRehashCount() {
+        return rehashCount.sum();
+    }
+
+    /**
+     * Returns the total time spent moving entries into grown tables.
+     * @return the total rehash time in nanoseconds
+     */
+    @Override
+    public long getTotalRehashNanos() {
+        return totalRehashNanos.sum();
+    }
+
+    /**
+     * Returns the longest time a single operation spent rehashing. With
+     * incremental rehashing, this is the longest migration step rather than
+     * the time of a whole rehash.
+     * @return the longest rehash pause in nanoseconds
+     */
+    @Override
+    public long getMaxRehashPauseNanos() {
+        return maxRehashPauseNanos.get();
+    }
+
+    /**
+     * Returns an estimate of the bytes allocated for new tables.
+     * @return an estimate of the bytes allocated for new tables
+     */
+    @Override
+    public long getBytesAllocatedByResizes() {
+        return bytesAllocatedByResizes.sum();
+    }
+
+    /**
+     * Sets all the metrics back to zero.
+     */
+    @Override
+    public void reset() {
+        hits.reset();
+        misses.reset();
+        for (LongAdder bucket : probeHistogram) {
+            bucket.reset();
+        }
+        treeLookups.reset();
+        rehashCount.reset();
+        totalRehashNanos.reset();
+        maxRehashPauseNanos.reset();
+        bytesAllocatedByResizes.reset();
+    }
+
+    /**
+     * Registers these metrics with the platform MBean server under the name
+     * "MyHashMap:type=Metrics,name=" + name.
+     * @param name the name that identifies the map
+     * @return the name under which the metrics were registered
+     * @throws JMException if the metrics cannot be registered
+     */
+    public ObjectName registerMBean(String name) throws JMException {
+        ObjectName objectName = new ObjectName("MyHashMap:type=Metrics,name="
+                                               + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this,
+                                                                 objectName);
+        return objectName;
+    }
+}
@@ -0,0 +1,27 @@
+/**
+ * Management interface of MyHashMapMetrics, for reading the metrics of a
+ * MyHashMap over JMX.
+ * @author Fengzhe Liu (fl2635)
+ * @version 1.0 October 18, 2026
+ */
+public interface MyHashMapMetricsMBean {
+    long getHits();
+
+    long getMisses();
+
+    double getHitRatio();
+
+    long[] getProbeHistogram();
+
+    long getTreeLookups();
+
+    long getRehashCount();
+
+    long getTotalRehashNanos();
+
+    long getMaxRehashPauseNanos();
+
+    long getBytesAllocatedByResizes();
+
+    void reset();
+}
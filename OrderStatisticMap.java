@@ -0,0 +1,234 @@
+import java.util.Iterator;
+import java.util.Random;
+
+/**
+ * Class that implements an order-statistic tree: an AVLMap whose Nodes also
+ * store the number of Nodes in their subtrees. The sizes are kept up to date
+ * by the same bottom-up pass that AVLMap makes after every put and remove,
+ * so rank, select, countInRange and percentile all take O(log n) time
+ * instead of an inorder traversal.
+ * @author Fengzhe Liu (fl2635)
+ * @version 1.0 October 18, 2026
+ */
+public class OrderStatisticMap<K extends Comparable<K>, V>
+        extends AVLMap<K, V> {
+
+    /**
+     * Creates an empty order-statistic tree map.
+     */
+    public OrderStatisticMap() { }
+
+    /**
+     * Creates an order-statistic tree map of the given key-value pairs.
+     * @param elements an array of key-value pairs
+     */
+    public OrderStatisticMap(Pair<K, V>[] elements) {
+        super(elements);
+    }
+
+    /**
+     * Creates an order-statistic tree map of the given key-value pairs. If
+     * sorted is true, the tree is built directly from the array in linear
+     * time.
+     * @param elements an array of key-value pairs
+     * @param sorted   true if the pairs are sorted by key
+     */
+    public OrderStatisticMap(Pair<K, V>[] elements, boolean sorted) {
+        super(elements, sorted);
+    }
+
+    /**
+     * Creates an order-statistic tree map of the key-value pairs returned by
+     * the iterator, which must be in strictly ascending key order.
+     * @param sortedPairs an iterator over key-value pairs sorted by key
+     * @throws IllegalArgumentException if the keys are not strictly ascending
+     */
+    public OrderStatisticMap(Iterator<Pair<K, V>> sortedPairs) {
+        super(sortedPairs);
+    }
+
+    /**
+     * Node that also stores the number of Nodes in its subtree.
+     */
+    private static class SizedNode<K, V> extends AVLNode<K, V> {
+        int size = 1;
+
+        SizedNode(K key, V value) {
+            super(key, value);
+        }
+    }
+
+    @Override
+    protected Node<K, V> newNode(K key, V value) {
+        return new SizedNode<>(key, value);
+    }
+
+    @Override
+    protected BSTMap<K, V> newMap() {
+        return new OrderStatisticMap<>();
+    }
+
+    @Override
+    protected void update(Node<K, V> n) {
+        super.update(n);
+        ((SizedNode<K, V>)n).size =
+                1 + subtreeSize(n.left) + subtreeSize(n.right);
+    }
+
+    private int subtreeSize(Node<K, V> n) {
+        return n == null ? 0 : ((SizedNode<K, V>)n).size;
+    }
+
+    /**
+     * Returns the number of keys in this map that are strictly less than the
+     * given key. The key itself need not be in the map.
+     * @param key the key whose rank is to be returned
+     * @return the number of keys less than key
+     */
+    public int rank(K key) {
+        int rank = 0;
+        Node<K, V> x = root;
+        while (x != null) {
+            int comparison = key.compareTo(x.key);
+            if (comparison < 0) {
+                x = x.left;
+            } else {
+                rank += subtreeSize(x.left);
+                if (comparison == 0) {
+                    break;
+                }
+                rank++;
+                x = x.right;
+            }
+        }
+        return rank;
+    }
+
+    /**
+     * Returns the key with the given rank, that is, the key that has exactly
+     * index smaller keys in this map.
+     * @param index the rank of the key, from 0 to size() - 1
+     * @return the key with the given rank
+     * @throws IndexOutOfBoundsException if index is out of range
+     */
+    public K select(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(
+                    "Index: " + index + ", map size: " + size);
+        }
+        Node<K, V> x = root;
+        while (true) {
+            int leftSize = subtreeSize(x.left);
+            if (index < leftSize) {
+                x = x.left;
+            } else if (index == leftSize) {
+                return x.key;
+            } else {
+                index -= leftSize + 1;
+                x = x.right;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of keys from lo, inclusive, to hi, exclusive.
+     * @param lo the low endpoint of the range, inclusive
+     * @param hi the high endpoint of the range, exclusive
+     * @return the number of keys in the range
+     * @throws IllegalArgumentException if lo is greater than hi
+     */
+    public int countInRange(K lo, K hi) {
+        if (lo.compareTo(hi) > 0) {
+            throw new IllegalArgumentException("lo > hi");
+        }
+        return rank(hi) - rank(lo);
+    }
+
+    /**
+     * Returns the key at the given percentile with the nearest-rank method:
+     * the smallest key such that at least p percent of the keys are less
+     * than or equal to it.
+     * @param p the percentile, from 0 to 100
+     * @return the key at the percentile, or null if the map is empty
+     * @throws IllegalArgumentException if p is not between 0 and 100
+     */
+    public K percentile(double p) {
+        if (!(p >= 0 && p <= 100)) {
+            throw new IllegalArgumentException("Illegal percentile: " + p);
+        }
+        if (size == 0) {
+            return null;
+        }
+        int rank = (int)Math.ceil(p / 100 * size);
+        return select(Math.max(rank, 1) - 1);
+    }
+
+    /**
+     * Looks up percentiles of a million random response times with
+     * percentile() and, for comparison, with a full inorder scan per query.
+     */
+    public static void main(String[] args) {
+        int n = 1000000;
+        Random random = new Random(42);
+        OrderStatisticMap<Integer, Integer> latencies =
+                new OrderStatisticMap<>();
+        for (int i = 0; i < n; i++) {
+            latencies.put(random.nextInt(Integer.MAX_VALUE), i);
+        }
+        System.out.println("Keys:                     " + latencies.size());
+        System.out.println("Height:                   " + latencies.height());
+        System.out.println("select(0) = firstKey:     "
+                           + latencies.select(0).equals(latencies.firstKey()));
+        for (int i = 0; i < 1000; i++) {
+            int index = random.nextInt(latencies.size());
+            if (latencies.rank(latencies.select(index)) != index) {
+                System.out.println("rank(select(i)) != i for i = " + index);
+                break;
+            }
+        }
+        System.out.println("Keys in [0, 2^30):        "
+                           + latencies.countInRange(0, 1 << 30));
+
+        double[] percentiles = {50, 90, 99, 99.9};
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            Integer[] fast = new Integer[percentiles.length];
+            for (int i = 0; i < percentiles.length; i++) {
+                fast[i] = latencies.percentile(percentiles[i]);
+            }
+            long fastTime = System.nanoTime() - start;
+            start = System.nanoTime();
+            Integer[] slow = new Integer[percentiles.length];
+            for (int i = 0; i < percentiles.length; i++) {
+                slow[i] = scanPercentile(latencies, percentiles[i]);
+            }
+            long slowTime = System.nanoTime() - start;
+            if (round == 2) {   // the first rounds warm up the JIT
+                for (int i = 0; i < percentiles.length; i++) {
+                    System.out.printf("p%-5s %10d %10d\n", percentiles[i],
+                                      fast[i], slow[i]);
+                }
+                System.out.printf("percentile():             %.3f ms\n",
+                                  fastTime / 1e6);
+                System.out.printf("Inorder scan:             %.3f ms\n",
+                                  slowTime / 1e6);
+            }
+        }
+    }
+
+    /**
+     * Finds a percentile the old way, by walking the keys in order.
+     */
+    private static Integer scanPercentile(BSTMap<Integer, Integer> map,
+                                          double p) {
+        int target = Math.max((int)Math.ceil(p / 100 * map.size()), 1);
+        int[] seen = {0};
+        Integer[] result = {null};
+        map.forEach((key, value) -> {
+            if (++seen[0] == target) {
+                result[0] = key;
+            }
+        });
+        return result[0];
+    }
+}
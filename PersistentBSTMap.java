@@ -0,0 +1,459 @@
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+
+/**
+ * Class that implements a persistent binary search tree map. The Nodes are
+ * immutable and have no parent references, so put and remove never change a
+ * Node: they copy the O(log n) Nodes on the path to the key, share every
+ * other Node with the previous version, and then publish the new root. The
+ * tree is kept balanced with the AVL rule, so the path stays short.
+ * <p>
+ * Because a version can never change once it has been published,
+ * snapshot() takes O(1) time and the snapshot can be read by any number of
+ * threads without locks, while writers go on updating the map. Versions that
+ * no reader holds any more are reclaimed by the garbage collector. Writers
+ * publish a new root with compareAndSet, retrying if another writer got
+ * there first, so they never block each other either.
+ * @author Fengzhe Liu (fl2635)
+ * @version 1.0 October 18, 2026
+ */
+public class PersistentBSTMap<K extends Comparable<K>, V>
+        implements MyMap<K, V> {
+    private final AtomicReference<TreeNode<K, V>> root;
+
+    /**
+     * Creates an empty persistent binary search tree map.
+     */
+    public PersistentBSTMap() {
+        this(null);
+    }
+
+    private PersistentBSTMap(TreeNode<K, V> root) {
+        this.root = new AtomicReference<>(root);
+    }
+
+    /**
+     * Immutable Node that also stores the height and the number of Nodes of
+     * its subtree.
+     */
+    private static final class TreeNode<K, V> {
+        final K key;
+        final V value;
+        final TreeNode<K, V> left, right;
+        final int height, size;
+
+        TreeNode(K key, V value, TreeNode<K, V> left, TreeNode<K, V> right) {
+            this.key = key;
+            this.value = value;
+            this.left = left;
+            this.right = right;
+            height = 1 + Math.max(height(left), height(right));
+            size = 1 + size(left) + size(right);
+        }
+    }
+
+    private static int height(TreeNode<?, ?> n) {
+        return n == null ? -1 : n.height;
+    }
+
+    private static int size(TreeNode<?, ?> n) {
+        return n == null ? 0 : n.size;
+    }
+
+    /**
+     * The outcome of one put or remove on one version of the tree.
+     */
+    private static class Update<V> {
+        V oldValue;
+        boolean changed;
+    }
+
+    /**
+     * Returns a snapshot of this map in O(1) time. The snapshot is a map of
+     * its own: changes to this map do not show in it, and changes to it do
+     * not show in this map.
+     * @return a snapshot of this map
+     */
+    public PersistentBSTMap<K, V> snapshot() {
+        return new PersistentBSTMap<>(root.get());
+    }
+
+    /**
+     * Returns the number of key-value mappings in this map.
+     * @return the number of key-value mappings in this map
+     */
+    @Override
+    public int size() {
+        return size(root.get());
+    }
+
+    /**
+     * Returns true if this map contains no key-value mappings.
+     * @return true if this map contains no key-value mappings
+     */
+    @Override
+    public boolean isEmpty() {
+        return root.get() == null;
+    }
+
+    /**
+     * Returns the height of the tree. If the tree is empty, the height is -1.
+     * @return the height of the tree
+     */
+    public int height() {
+        return height(root.get());
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or null if this
+     * map contains no mapping for the key.
+     * @param  key the key whose associated value is to be returned
+     * @return the value to which the specified key is mapped, or null if this
+     *         map contains no mapping for the key
+     */
+    @Override
+    public V get(K key) {
+        TreeNode<K, V> x = root.get();
+        while (x != null) {
+            int comparison = key.compareTo(x.key);
+            if (comparison == 0) {
+                return x.value;
+            }
+            x = comparison < 0 ? x.left : x.right;
+        }
+        return null;
+    }
+
+    /**
+     * Associates the specified value with the specified key in this map. If the
+     * map previously contained a mapping for the key, the old value is replaced
+     * by the specified value. Snapshots taken earlier are not affected.
+     * @param key   the key with which the specified value is to be associated
+     * @param value the value to be associated with the specified key
+     * @return the previous value associated with key, or null if there was no
+     *         mapping for key
+     */
+    @Override
+    public V put(K key, V value) {
+        Update<V> update = new Update<>();
+        while (true) {
+            TreeNode<K, V> current = root.get();
+            update.changed = false;
+            TreeNode<K, V> next = insert(current, key, value, update);
+            if (!update.changed || root.compareAndSet(current, next)) {
+                return update.oldValue;
+            }
+        }
+    }
+
+    /**
+     * Removes the mapping for a key from this map if it is present. Snapshots
+     * taken earlier are not affected.
+     * @param key key whose mapping is to be removed from the map
+     * @return the previous value associated with key, or null if there was no
+     *         mapping for key
+     */
+    @Override
+    public V remove(K key) {
+        Update<V> update = new Update<>();
+        while (true) {
+            TreeNode<K, V> current = root.get();
+            update.changed = false;
+            update.oldValue = null;
+            TreeNode<K, V> next = delete(current, key, update);
+            if (!update.changed || root.compareAndSet(current, next)) {
+                return update.oldValue;
+            }
+        }
+    }
+
+    /**
+     * Returns the root of a version of the subtree n with key mapped to
+     * value. Only the Nodes on the path to key are copied.
+     */
+    private TreeNode<K, V> insert(TreeNode<K, V> n, K key, V value,
+                                  Update<V> update) {
+        if (n == null) {
+            update.oldValue = null;
+            update.changed = true;
+            return new TreeNode<>(key, value, null, null);
+        }
+        int comparison = key.compareTo(n.key);
+        if (comparison == 0) {
+            update.oldValue = n.value;
+            if (n.value == value) {
+                return n;
+            }
+            update.changed = true;
+            return new TreeNode<>(key, value, n.left, n.right);
+        }
+        if (comparison < 0) {
+            TreeNode<K, V> left = insert(n.left, key, value, update);
+            return left == n.left ? n : balance(n.key, n.value, left, n.right);
+        }
+        TreeNode<K, V> right = insert(n.right, key, value, update);
+        return right == n.right ? n : balance(n.key, n.value, n.left, right);
+    }
+
+    /**
+     * Returns the root of a version of the subtree n without key.
+     */
+    private TreeNode<K, V> delete(TreeNode<K, V> n, K key, Update<V> update) {
+        if (n == null) {
+            return null;
+        }
+        int comparison = key.compareTo(n.key);
+        if (comparison < 0) {
+            TreeNode<K, V> left = delete(n.left, key, update);
+            return left == n.left ? n : balance(n.key, n.value, left, n.right);
+        }
+        if (comparison > 0) {
+            TreeNode<K, V> right = delete(n.right, key, update);
+            return right == n.right
+                   ? n : balance(n.key, n.value, n.left, right);
+        }
+        update.oldValue = n.value;
+        update.changed = true;
+        if (n.left == null) {
+            return n.right;
+        }
+        if (n.right == null) {
+            return n.left;
+        }
+        TreeNode<K, V> successor = n.right;
+        while (successor.left != null) {
+            successor = successor.left;
+        }
+        return balance(successor.key, successor.value, n.left,
+                       deleteMinimum(n.right));
+    }
+
+    private TreeNode<K, V> deleteMinimum(TreeNode<K, V> n) {
+        if (n.left == null) {
+            return n.right;
+        }
+        return balance(n.key, n.value, deleteMinimum(n.left), n.right);
+    }
+
+    /**
+     * Returns a new Node for key and value with the given subtrees, whose
+     * heights differ by at most two, rotating if needed so that they differ
+     * by at most one.
+     */
+    private TreeNode<K, V> balance(K key, V value, TreeNode<K, V> left,
+                                   TreeNode<K, V> right) {
+        if (height(left) > height(right) + 1) {
+            if (height(left.left) >= height(left.right)) {
+                return new TreeNode<>(left.key, left.value, left.left,
+                        new TreeNode<>(key, value, left.right, right));
+            }
+            TreeNode<K, V> middle = left.right;
+            return new TreeNode<>(middle.key, middle.value,
+                    new TreeNode<>(left.key, left.value, left.left,
+                                   middle.left),
+                    new TreeNode<>(key, value, middle.right, right));
+        }
+        if (height(right) > height(left) + 1) {
+            if (height(right.right) >= height(right.left)) {
+                return new TreeNode<>(right.key, right.value,
+                        new TreeNode<>(key, value, left, right.left),
+                        right.right);
+            }
+            TreeNode<K, V> middle = right.left;
+            return new TreeNode<>(middle.key, middle.value,
+                    new TreeNode<>(key, value, left, middle.left),
+                    new TreeNode<>(right.key, right.value, middle.right,
+                                   right.right));
+        }
+        return new TreeNode<>(key, value, left, right);
+    }
+
+    /**
+     * Performs the given action on each mapping of the current version of
+     * this map in ascending key order. Updates made while it runs are not
+     * seen.
+     * @param action the action to be performed on each key and value
+     */
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        forEach(root.get(), action);
+    }
+
+    private static <K, V> void forEach(TreeNode<K, V> n,
+            BiConsumer<? super K, ? super V> action) {
+        while (n != null) {         // recurse on the left, loop on the right
+            forEach(n.left, action);
+            action.accept(n.key, n.value);
+            n = n.right;
+        }
+    }
+
+    /**
+     * Returns an iterator over the mappings of the current version of this
+     * map in ascending key order. The iterator is not affected by later
+     * updates to the map.
+     * @return an iterator over the mappings in this map
+     */
+    public Iterator<Entry<K, V>> iterator() {
+        return new TreeItr(root.get());
+    }
+
+    private class TreeItr implements Iterator<Entry<K, V>> {
+        // The Nodes whose left subtrees have been visited but they have not.
+        private final ArrayDeque<TreeNode<K, V>> path = new ArrayDeque<>();
+
+        TreeItr(TreeNode<K, V> root) {
+            pushLeftPath(root);
+        }
+
+        private void pushLeftPath(TreeNode<K, V> n) {
+            for (; n != null; n = n.left) {
+                path.push(n);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !path.isEmpty();
+        }
+
+        @Override
+        public Entry<K, V> next() {
+            if (path.isEmpty()) {
+                throw new NoSuchElementException();
+            }
+            TreeNode<K, V> n = path.pop();
+            pushLeftPath(n.right);
+            return new Entry<>(n.key, n.value);
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * Returns a String representation of the map, where the mappings are
+     * listed in ascending key order.
+     * @return a String representation of the map
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("[");
+        forEach((key, value) -> {
+            if (builder.length() > 1) {
+                builder.append(", ");
+            }
+            builder.append("<").append(key).append(", ").append(value)
+                   .append(">");
+        });
+        builder.append("]");
+        return builder.toString();
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        PersistentBSTMap<Integer, Integer> map = new PersistentBSTMap<>();
+        for (int i = 0; i < 10; i++) {
+            map.put(i, i);
+        }
+        PersistentBSTMap<Integer, Integer> before = map.snapshot();
+        for (int i = 0; i < 10; i += 2) {
+            map.remove(i);
+        }
+        map.put(1, 100);
+        System.out.println("Snapshot : " + before);
+        System.out.println("Map      : " + map);
+        System.out.println();
+
+        benchmarkReadersAndWriter();
+    }
+
+    /**
+     * Runs one writer doing random puts and removes alongside threads that
+     * keep summing the whole map. Against a BSTMap behind a lock, each sum
+     * holds the lock for a full traversal, so the writer stalls behind it;
+     * against a PersistentBSTMap, the readers sum a snapshot and the writer
+     * never waits.
+     */
+    private static void benchmarkReadersAndWriter()
+            throws InterruptedException {
+        int keyRange = 200000, writes = 300000, readers = 3;
+        System.out.println("Map                  writes/s   scans   "
+                           + "slowest write (ms)");
+        for (int kind = 0; kind < 2; kind++) {
+            boolean useLock = kind == 0;
+            BSTMap<Integer, Integer> locked = new BSTMap<>();
+            PersistentBSTMap<Integer, Integer> persistent =
+                    new PersistentBSTMap<>();
+            Random random = new Random(42);
+            for (int i = 0; i < keyRange / 2; i++) {
+                int key = random.nextInt(keyRange);
+                if (useLock) {
+                    locked.put(key, key);
+                } else {
+                    persistent.put(key, key);
+                }
+            }
+            long[] scans = new long[readers + 1];
+            long[] writerTime = new long[2];        // total, slowest
+            AtomicBoolean done = new AtomicBoolean();
+            Object lock = new Object();
+            ThreadBench.runThreads(readers + 1, t -> {
+                if (t == 0) {                       // the writer
+                    Random r = new Random(7);
+                    long start = System.nanoTime();
+                    for (int i = 0; i < writes; i++) {
+                        int key = r.nextInt(keyRange);
+                        boolean add = r.nextBoolean();
+                        long opStart = System.nanoTime();
+                        if (useLock) {
+                            synchronized (lock) {
+                                if (add) {
+                                    locked.put(key, key);
+                                } else {
+                                    locked.remove(key);
+                                }
+                            }
+                        } else if (add) {
+                            persistent.put(key, key);
+                        } else {
+                            persistent.remove(key);
+                        }
+                        writerTime[1] = Math.max(writerTime[1],
+                                                 System.nanoTime() - opStart);
+                    }
+                    writerTime[0] = System.nanoTime() - start;
+                    done.set(true);
+                    return;
+                }
+                long[] sum = {0};
+                while (!done.get()) {
+                    if (useLock) {
+                        synchronized (lock) {
+                            locked.forEach((key, value) -> sum[0] += value);
+                        }
+                    } else {
+                        persistent.snapshot()
+                                  .forEach((key, value) -> sum[0] += value);
+                    }
+                    scans[t]++;
+                }
+            });
+            long totalScans = 0;
+            for (long s : scans) {
+                totalScans += s;
+            }
+            System.out.printf("%-19s %9.0f %7d %20.3f\n",
+                              useLock ? "synchronized BSTMap"
+                                        : "PersistentBSTMap",
+                              writes / (writerTime[0] / 1e9), totalScans,
+                              writerTime[1] / 1e6);
+        }
+    }
+}
@@ -0,0 +1,704 @@
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.function.BiConsumer;
+
+/**
+ * Class that implements a binary search tree with the same operations as
+ * BSTMap, but without a Node object per mapping. The Nodes are slots in a
+ * pool of parallel arrays: keys[i] and values[i] hold the mapping, and
+ * left[i], right[i] and parent[i] hold the slots of its neighbours, or NIL.
+ * A tree of n mappings is then five arrays instead of n objects, which is
+ * less memory per mapping, far fewer objects for the garbage collector to
+ * trace, and, for a tree built from sorted pairs, one laid out level by level
+ * so that the top of every search path shares a few cache lines.
+ * <p>
+ * The slots of removed mappings are kept on a free list, linked through
+ * right, and reused by later puts.
+ * <p>
+ * Of BSTMap's operations, the constructor from an Iterator of sorted pairs,
+ * the subMap, headMap and tailMap views, union, intersection, difference and
+ * split are not provided, and neither is toAsciiDrawing, since they hand out
+ * or take in Nodes.
+ * @author Fengzhe Liu (fl2635)
+ * @version 1.0 October 18, 2026
+ */
+public class PooledBSTMap<K extends Comparable<K>, V> implements MyMap<K, V> {
+    public static final int PREORDER = 1, INORDER = 2, POSTORDER = 3;
+    private static final int NIL = -1;
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private Object[] keys, values;
+    private int[] left, right, parent;
+    private int root = NIL, size;
+    // Slots below slotsUsed have been handed out at least once.
+    private int slotsUsed, freeHead = NIL;
+
+    /**
+     * Creates an empty binary search tree map.
+     */
+    public PooledBSTMap() {
+        allocateArrays(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a binary search tree map of the given key-value pairs, inserted
+     * in the order they are received.
+     * @param elements an array of key-value pairs
+     */
+    public PooledBSTMap(Pair<K, V>[] elements) {
+        this(elements, false);
+    }
+
+    /**
+     * Creates a binary search tree map of the given key-value pairs. If
+     * sorted is true, a balanced tree will be created, with its slots
+     * numbered level by level from the root. If sorted is false, the pairs
+     * will be inserted in the order they are received.
+     * @param elements an array of key-value pairs
+     * @param sorted   true if the pairs are sorted by key
+     */
+    public PooledBSTMap(Pair<K, V>[] elements, boolean sorted) {
+        allocateArrays(Math.max(elements.length, DEFAULT_CAPACITY));
+        if (sorted) {
+            buildLevelOrder(elements);
+        } else {
+            for (Pair<K, V> pair : elements) {
+                put(pair.key, pair.value);
+            }
+        }
+    }
+
+    private void allocateArrays(int capacity) {
+        keys = new Object[capacity];
+        values = new Object[capacity];
+        left = new int[capacity];
+        right = new int[capacity];
+        parent = new int[capacity];
+    }
+
+    /**
+     * Builds the balanced tree that createBST in BSTMap would build, but
+     * hands out slots breadth first: the root gets slot 0, its children
+     * slots 1 and 2, and so on. The ranges still to be placed wait in a
+     * queue of parallel arrays.
+     */
+    private void buildLevelOrder(Pair<K, V>[] pairs) {
+        int n = pairs.length;
+        if (n == 0) {
+            return;
+        }
+        int[] lows = new int[n], highs = new int[n], parents = new int[n];
+        boolean[] isLeft = new boolean[n];
+        lows[0] = 0;
+        highs[0] = n - 1;
+        parents[0] = NIL;
+        int tail = 1;
+        for (int slot = 0; slot < n; slot++) {
+            int low = lows[slot], high = highs[slot];
+            int mid = low + (high - low) / 2;
+            keys[slot] = pairs[mid].key;
+            values[slot] = pairs[mid].value;
+            left[slot] = right[slot] = NIL;
+            parent[slot] = parents[slot];
+            if (parents[slot] == NIL) {
+                root = slot;
+            } else if (isLeft[slot]) {
+                left[parents[slot]] = slot;
+            } else {
+                right[parents[slot]] = slot;
+            }
+            if (low <= mid - 1) {
+                lows[tail] = low;
+                highs[tail] = mid - 1;
+                parents[tail] = slot;
+                isLeft[tail++] = true;
+            }
+            if (mid + 1 <= high) {
+                lows[tail] = mid + 1;
+                highs[tail] = high;
+                parents[tail] = slot;
+                isLeft[tail++] = false;
+            }
+        }
+        slotsUsed = size = n;
+    }
+
+    @SuppressWarnings("unchecked")
+    private K key(int x) {
+        return (K)keys[x];
+    }
+
+    @SuppressWarnings("unchecked")
+    private V value(int x) {
+        return (V)values[x];
+    }
+
+    /**
+     * Returns the number of key-value mappings in this map.
+     * @return the number of key-value mappings in this map
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns true if this map contains no key-value mappings.
+     * @return true if this map contains no key-value mappings
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or null if this
+     * map contains no mapping for the key.
+     * @param  key the key whose associated value is to be returned
+     * @return the value to which the specified key is mapped, or null if this
+     *         map contains no mapping for the key
+     */
+    public V get(K key) {
+        int x = iterativeSearch(key);
+        return x != NIL ? value(x) : null;
+    }
+
+    private int iterativeSearch(K key) {
+        int x = root;
+        while (x != NIL) {
+            int comparison = key.compareTo(key(x));
+            if (comparison == 0) {
+                return x;
+            }
+            x = comparison < 0 ? left[x] : right[x];
+        }
+        return NIL;
+    }
+
+    /**
+     * Associates the specified value with the specified key in this map. If the
+     * map previously contained a mapping for the key, the old value is replaced
+     * by the specified value.
+     * @param pair  the key-value mapping to insert into the tree
+     * @return the previous value associated with key, or null if there was no
+     *         mapping for key
+     */
+    public V put(Pair<K, V> pair) {
+        return put(pair.key, pair.value);
+    }
+
+    /**
+     * Associates the specified value with the specified key in this map. If the
+     * map previously contained a mapping for the key, the old value is replaced
+     * by the specified value.
+     * @param key   the key with which the specified value is to be associated
+     * @param value the value to be associated with the specified key
+     * @return the previous value associated with key, or null if there was no
+     *         mapping for key
+     */
+    public V put(K key, V value) {
+        int x = root, y = NIL, comparison = 0;
+        while (x != NIL) {
+            y = x;
+            comparison = key.compareTo(key(x));
+            if (comparison < 0) {
+                x = left[x];
+            } else if (comparison > 0) {
+                x = right[x];
+            } else {
+                V oldValue = value(x);
+                values[x] = value;
+                return oldValue;
+            }
+        }
+        int z = allocateSlot();
+        keys[z] = key;
+        values[z] = value;
+        left[z] = right[z] = NIL;
+        parent[z] = y;
+        if (y == NIL) {
+            root = z;
+        } else if (comparison < 0) {
+            left[y] = z;
+        } else {
+            right[y] = z;
+        }
+        size++;
+        return null;
+    }
+
+    /**
+     * Returns a free slot, growing the arrays by half if none is left.
+     */
+    private int allocateSlot() {
+        if (freeHead != NIL) {
+            int slot = freeHead;
+            freeHead = right[slot];
+            return slot;
+        }
+        if (slotsUsed == keys.length) {
+            int capacity = keys.length + (keys.length >> 1) + 1;
+            keys = Arrays.copyOf(keys, capacity);
+            values = Arrays.copyOf(values, capacity);
+            left = Arrays.copyOf(left, capacity);
+            right = Arrays.copyOf(right, capacity);
+            parent = Arrays.copyOf(parent, capacity);
+        }
+        return slotsUsed++;
+    }
+
+    /**
+     * Removes the mapping for a key from this map if it is present.
+     * @param key the key whose mapping is to be removed from the map
+     * @return the previous value associated with key, or null if there was no
+     *         mapping for key
+     */
+    public V remove(K key) {
+        int z = iterativeSearch(key);
+        if (z == NIL) {
+            return null;
+        }
+        V oldValue = value(z);
+        if (left[z] != NIL && right[z] != NIL) {
+            // Move the successor's mapping here and remove its slot instead.
+            // No slot numbers are visible outside the class, so nothing else
+            // needs to know.
+            int y = treeMinimum(right[z]);
+            keys[z] = keys[y];
+            values[z] = values[y];
+            z = y;
+        }
+        transplant(z, left[z] != NIL ? left[z] : right[z]);
+        keys[z] = values[z] = null;     // let the mapping be collected
+        right[z] = freeHead;
+        freeHead = z;
+        size--;
+        return oldValue;
+    }
+
+    private void transplant(int u, int v) {
+        int p = parent[u];
+        if (p == NIL) {
+            root = v;
+        } else if (u == left[p]) {
+            left[p] = v;
+        } else {
+            right[p] = v;
+        }
+        if (v != NIL) {
+            parent[v] = p;
+        }
+    }
+
+    private int treeMinimum(int x) {
+        while (left[x] != NIL) {
+            x = left[x];
+        }
+        return x;
+    }
+
+    private int treeMaximum(int x) {
+        while (right[x] != NIL) {
+            x = right[x];
+        }
+        return x;
+    }
+
+    private int successor(int x) {
+        if (right[x] != NIL) {
+            return treeMinimum(right[x]);
+        }
+        int y = parent[x];
+        while (y != NIL && x == right[y]) {
+            x = y;
+            y = parent[y];
+        }
+        return y;
+    }
+
+    /**
+     * Returns the least key in this map, or null if the map is empty.
+     * @return the least key in this map, or null
+     */
+    public K firstKey() {
+        return root == NIL ? null : key(treeMinimum(root));
+    }
+
+    /**
+     * Returns the greatest key in this map, or null if the map is empty.
+     * @return the greatest key in this map, or null
+     */
+    public K lastKey() {
+        return root == NIL ? null : key(treeMaximum(root));
+    }
+
+    /**
+     * Returns the greatest key less than or equal to the given key, or null
+     * if there is no such key.
+     * @param key the key to look up
+     * @return the greatest key less than or equal to key, or null
+     */
+    public K floor(K key) {
+        return keyOf(floorSlot(key, true));
+    }
+
+    /**
+     * Returns the least key greater than or equal to the given key, or null
+     * if there is no such key.
+     * @param key the key to look up
+     * @return the least key greater than or equal to key, or null
+     */
+    public K ceiling(K key) {
+        return keyOf(ceilingSlot(key, true));
+    }
+
+    /**
+     * Returns the greatest key strictly less than the given key, or null if
+     * there is no such key.
+     * @param key the key to look up
+     * @return the greatest key less than key, or null
+     */
+    public K lowerKey(K key) {
+        return keyOf(floorSlot(key, false));
+    }
+
+    /**
+     * Returns the least key strictly greater than the given key, or null if
+     * there is no such key.
+     * @param key the key to look up
+     * @return the least key greater than key, or null
+     */
+    public K higherKey(K key) {
+        return keyOf(ceilingSlot(key, false));
+    }
+
+    private K keyOf(int x) {
+        return x == NIL ? null : key(x);
+    }
+
+    private int floorSlot(K key, boolean inclusive) {
+        int x = root, best = NIL;
+        while (x != NIL) {
+            int comparison = key.compareTo(key(x));
+            if (comparison > 0 || (inclusive && comparison == 0)) {
+                best = x;
+                if (comparison == 0) {
+                    break;
+                }
+                x = right[x];
+            } else {
+                x = left[x];
+            }
+        }
+        return best;
+    }
+
+    private int ceilingSlot(K key, boolean inclusive) {
+        int x = root, best = NIL;
+        while (x != NIL) {
+            int comparison = key.compareTo(key(x));
+            if (comparison < 0 || (inclusive && comparison == 0)) {
+                best = x;
+                if (comparison == 0) {
+                    break;
+                }
+                x = left[x];
+            } else {
+                x = right[x];
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Returns an iterator over the mappings in this map in ascending key
+     * order. Each call to next() returns a new Entry.
+     * @return an iterator over the mappings in this map
+     */
+    public Iterator<Entry<K, V>> iterator() {
+        return new Iterator<>() {
+            private int next = root == NIL ? NIL : treeMinimum(root);
+
+            @Override
+            public boolean hasNext() {
+                return next != NIL;
+            }
+
+            @Override
+            public Entry<K, V> next() {
+                if (next == NIL) {
+                    throw new NoSuchElementException();
+                }
+                int x = next;
+                next = successor(x);
+                return new Entry<>(key(x), value(x));
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    /**
+     * Performs the given action on each mapping in this map in ascending key
+     * order. Unlike iterator(), it allocates nothing per mapping.
+     * @param action the action to be performed on each key and value
+     */
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        for (int x = root == NIL ? NIL : treeMinimum(root); x != NIL;
+             x = successor(x)) {
+            action.accept(key(x), value(x));
+        }
+    }
+
+    /**
+     * Returns a String of the key-value pairs visited with a preorder
+     * traversal, in the format of BSTMap.preorder().
+     * @return a String of the key-value pairs visited with a preorder
+     *         traversal
+     */
+    public String preorder() {
+        return traversal(PREORDER);
+    }
+
+    /**
+     * Returns a String of the key-value pairs visited with an inorder
+     * traversal, in the format of BSTMap.inorder().
+     * @return a String of the key-value pairs visited with an inorder
+     *         traversal
+     */
+    public String inorder() {
+        return traversal(INORDER);
+    }
+
+    /**
+     * Returns a String of the key-value pairs visited with a postorder
+     * traversal, in the format of BSTMap.postorder().
+     * @return a String of the key-value pairs visited with a postorder
+     *         traversal
+     */
+    public String postorder() {
+        return traversal(POSTORDER);
+    }
+
+    /**
+     * Returns a String representation of the tree, where the mappings are
+     * visited with an inorder traversal.
+     * @return a String representation of the tree
+     */
+    public String toString() {
+        return inorder();
+    }
+
+    /**
+     * Prints the traversal of the given type, PREORDER, INORDER or
+     * POSTORDER, in the format of BSTMap.printTraversal. Any other type
+     * prints nothing.
+     * @param type the type of traversal to print
+     */
+    public void printTraversal(int type) {
+        switch (type) {
+            case PREORDER:
+                System.out.print("Preorder traversal:       ");
+                System.out.println(preorder());
+                break;
+            case INORDER:
+                System.out.print("Inorder traversal:        ");
+                System.out.println(inorder());
+                break;
+            case POSTORDER:
+                System.out.print("Postorder traversal:      ");
+                System.out.println(postorder());
+                break;
+            default:
+                return;
+        }
+    }
+
+    private String traversal(int order) {
+        StringBuilder builder = new StringBuilder();
+        builder.append("[");
+        walk(order, (x, level) -> {
+            if (builder.length() > 1) {
+                builder.append(", ");
+            }
+            builder.append("<").append(key(x)).append(", ").append(value(x))
+                   .append(">");
+        });
+        builder.append("]");
+        return builder.toString();
+    }
+
+    /**
+     * Action applied to each slot visited by walk.
+     */
+    private interface SlotVisitor {
+        void visit(int x, int level);
+    }
+
+    /**
+     * Visits every slot of the tree in the given order, passing each slot's
+     * level to the visitor. Like the walk in BSTMap, it follows the parent
+     * links back up instead of recursing.
+     */
+    private void walk(int order, SlotVisitor visitor) {
+        int x = root, from = NIL, level = 0;
+        while (x != NIL) {
+            if (from == parent[x]) {            // arrived from above
+                if (order == PREORDER) {
+                    visitor.visit(x, level);
+                }
+                if (left[x] != NIL) {
+                    from = x;
+                    x = left[x];
+                    level++;
+                    continue;
+                }
+                from = NIL;                     // the empty left subtree
+            }
+            if (from == left[x]) {              // done with the left subtree
+                if (order == INORDER) {
+                    visitor.visit(x, level);
+                }
+                if (right[x] != NIL) {
+                    from = x;
+                    x = right[x];
+                    level++;
+                    continue;
+                }
+            }
+            if (order == POSTORDER) {           // done with both subtrees
+                visitor.visit(x, level);
+            }
+            from = x;
+            x = parent[x];
+            level--;
+        }
+    }
+
+    /**
+     * Returns the height of the tree. If the tree is empty, the height is -1.
+     * @return the height of the tree
+     */
+    public int height() {
+        int[] height = {-1};
+        walk(PREORDER, (x, level) -> height[0] = Math.max(height[0], level));
+        return height[0];
+    }
+
+    /**
+     * Returns the sum of the levels of each mapping in the tree, the root
+     * being at level 0.
+     * @return the sum of the levels of each mapping in the tree
+     */
+    public int sumLevels() {
+        int[] sum = {0};
+        walk(PREORDER, (x, level) -> sum[0] += level);
+        return sum[0];
+    }
+
+    /**
+     * Returns the number of NIL child links in the tree, which is always
+     * size() + 1, as in BSTMap.
+     * @return the number of NIL child links in the tree
+     */
+    public int nullCount() {
+        return size + 1;
+    }
+
+    /**
+     * Returns the sum of the levels of each NIL child link in the tree, which
+     * is always sumLevels() + 2 * size(), as in BSTMap.
+     * @return the sum of the levels of each NIL child link in the tree
+     */
+    public int sumNullLevels() {
+        return sumLevels() + 2 * size;
+    }
+
+    /**
+     * Returns the average number of slots a get visits to find a key in the
+     * tree, if every key is looked up equally often.
+     * @return the average cost of a successful search, or 0 if the tree is
+     *         empty
+     */
+    public double successfulSearchCost() {
+        return size == 0 ? 0 : 1 + (double)sumLevels() / size;
+    }
+
+    /**
+     * Returns the average number of slots a get visits before it reaches a
+     * NIL link, if every NIL link is reached equally often.
+     * @return the average cost of an unsuccessful search
+     */
+    public double unsuccessfulSearchCost() {
+        return (double)sumNullLevels() / nullCount();
+    }
+
+    /**
+     * Builds the same random tree as a BSTMap and as a PooledBSTMap, and the
+     * same balanced tree of sorted keys, and compares the heap they take,
+     * the time of a full garbage collection with each alive, and the time of
+     * random lookups.
+     */
+    public static void main(String[] args) {
+        int n = 2000000;
+        Random random = new Random(42);
+        @SuppressWarnings("unchecked")
+        Pair<Integer, Integer>[] sorted = new Pair[n];
+        for (int i = 0; i < n; i++) {
+            sorted[i] = new Pair<>(i, i);
+        }
+        Pair<Integer, Integer>[] shuffled = sorted.clone();
+        for (int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            Pair<Integer, Integer> t = shuffled[i];
+            shuffled[i] = shuffled[j];
+            shuffled[j] = t;
+        }
+        Integer[] queries = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            queries[i] = random.nextInt(n);
+        }
+        System.out.println("Keys: " + n + " (the keys and values are shared "
+                           + "and not counted)");
+        for (int round = 0; round < 3; round++) {
+            boolean print = round == 2; // the first rounds warm up the JIT
+            for (int kind = 0; kind < 4; kind++) {
+                Pair<Integer, Integer>[] pairs = kind < 2 ? shuffled : sorted;
+                long before = usedHeap();
+                MyMap<Integer, Integer> map = kind % 2 == 0
+                        ? new BSTMap<>(pairs, kind >= 2)
+                        : new PooledBSTMap<>(pairs, kind >= 2);
+                long bytes = usedHeap() - before;
+                long start = System.nanoTime();
+                System.gc();
+                long gcTime = System.nanoTime() - start;
+                start = System.nanoTime();
+                long sum = 0;
+                for (Integer key : queries) {
+                    sum += map.get(key);
+                }
+                long getTime = System.nanoTime() - start;
+                if (sum == 42) {    // keep the JIT from dropping the lookups
+                    System.out.println();
+                }
+                if (print) {
+                    System.out.printf("%-13s %-8s %5.1f bytes/key, "
+                            + "full GC %6.1f ms, get %6.1f ns\n",
+                            map.getClass().getName(),
+                            kind < 2 ? "random" : "balanced",
+                            (double)bytes / n, gcTime / 1e6,
+                            (double)getTime / n);
+                }
+            }
+        }
+    }
+
+    private static long usedHeap() {
+        System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,438 @@
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+/**
+ * Class for an open-addressing hash map that uses Robin Hood hashing.
+ * Keys, values and hash codes live in parallel arrays, so there is no Entry
+ * object per mapping and a lookup probes a short run of adjacent slots
+ * instead of following a chain of pointers. On insertion, an entry that is
+ * farther from its home slot takes the place of one that is closer, which
+ * keeps probe sequences short. Removal shifts the following entries back by
+ * one slot instead of leaving tombstones.
+ * @author Fengzhe Liu (fl2635)
+ * @version 1.0 October 18, 2026
+ */
+public class RobinHoodHashMap<K extends Comparable<K>, V> implements MyMap<K, V> {
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final int MAX_CAPACITY = 1 << 30;
+    private static final double MAX_LOAD_FACTOR = 0.8;
+    // hashes[i] == 0 marks an empty slot; stored hashes are never 0.
+    private int[] hashes;
+    private Object[] keys, values;
+    private int numEntries, maxEntries;
+
+    public RobinHoodHashMap() {
+        allocate(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Returns the number of slots in this RobinHoodHashMap.
+     * @return the number of slots in this RobinHoodHashMap
+     */
+    public int getTableSize() {
+        return hashes.length;
+    }
+
+    /**
+     * Returns the number of key-value mappings in this map.
+     * @return the number of key-value mappings in this map
+     */
+    @Override
+    public int size() {
+        return numEntries;
+    }
+
+    /**
+     * Returns true if this map contains no key-value mappings.
+     * @return true if this map contains no key-value mappings
+     */
+    @Override
+    public boolean isEmpty() {
+        return numEntries == 0;
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or null if this
+     * map contains no mapping for the key.
+     * @param  key the key whose associated value is to be returned
+     * @return the value to which the specified key is mapped, or null if this
+     *         map contains no mapping for the key
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(K key) {
+        int index = indexOf(key, hash(key));
+        return index >= 0 ? (V)values[index] : null;
+    }
+
+    /**
+     * Associates the specified value with the specified key in this map. If the
+     * map previously contained a mapping for the key, the old value is replaced
+     * by the specified value.
+     * @param key   the key with which the specified value is to be associated
+     * @param value the value to be associated with the specified key
+     * @return the previous value associated with key, or null if there was no
+     *         mapping for key
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public V put(K key, V value) {
+        int h = hash(key);
+        int index = indexOf(key, h);
+        if (index >= 0) {                          // replace the value
+            V oldValue = (V)values[index];
+            values[index] = value;
+            return oldValue;
+        }
+        if (numEntries >= maxEntries) {
+            if (hashes.length == MAX_CAPACITY) {
+                throw new IllegalStateException("RobinHoodHashMap is full.");
+            }
+            resize(hashes.length * 2);
+        }
+        insert(h, key, value);
+        numEntries++;
+        return null;
+    }
+
+    /**
+     * Removes the mapping for a key from this map if it is present.
+     * @param key the key whose mapping is to be removed from the map
+     * @return the previous value associated with key, or null if there was no
+     *         mapping for key
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public V remove(K key) {
+        int index = indexOf(key, hash(key));
+        if (index < 0) {
+            return null;
+        }
+        V oldValue = (V)values[index];
+        // Backward-shift deletion: pull each following entry that is not in
+        // its home slot back by one, until an empty slot or a home slot.
+        int mask = hashes.length - 1;
+        int next = (index + 1) & mask;
+        while (hashes[next] != 0 && probeDistance(next, mask) != 0) {
+            hashes[index] = hashes[next];
+            keys[index] = keys[next];
+            values[index] = values[next];
+            index = next;
+            next = (next + 1) & mask;
+        }
+        hashes[index] = 0;
+        keys[index] = null;
+        values[index] = null;
+        numEntries--;
+        return oldValue;
+    }
+
+    /**
+     * Returns the slot holding the specified key, or -1 if the key is not in
+     * the map. The search stops early once it reaches an entry that is closer
+     * to its home slot than the key would be, because Robin Hood insertion
+     * would have placed the key before that entry.
+     * @param key the key to search for
+     * @param h   the hash of the key
+     * @return the slot holding the key, or -1 if the key is not in the map
+     */
+    private int indexOf(K key, int h) {
+        int mask = hashes.length - 1;
+        int index = h & mask;
+        for (int dist = 0; ; dist++) {
+            int slotHash = hashes[index];
+            if (slotHash == 0 || probeDistance(index, mask) < dist) {
+                return -1;
+            }
+            if (slotHash == h && key.equals(keys[index])) {
+                return index;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    /**
+     * Inserts a key known not to be in the map. The caller must ensure there
+     * is at least one empty slot.
+     */
+    private void insert(int h, Object key, Object value) {
+        int mask = hashes.length - 1;
+        int index = h & mask;
+        for (int dist = 0; ; dist++) {
+            if (hashes[index] == 0) {
+                hashes[index] = h;
+                keys[index] = key;
+                values[index] = value;
+                return;
+            }
+            int slotDist = probeDistance(index, mask);
+            if (slotDist < dist) {
+                // The resident entry is richer, so it gives up its slot.
+                int tmpHash = hashes[index];
+                Object tmpKey = keys[index], tmpValue = values[index];
+                hashes[index] = h;
+                keys[index] = key;
+                values[index] = value;
+                h = tmpHash;
+                key = tmpKey;
+                value = tmpValue;
+                dist = slotDist;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    private void resize(int newCapacity) {
+        int[] oldHashes = hashes;
+        Object[] oldKeys = keys, oldValues = values;
+        allocate(newCapacity);
+        for (int i = 0; i < oldHashes.length; i++) {
+            if (oldHashes[i] != 0) {
+                insert(oldHashes[i], oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        hashes = new int[capacity];
+        keys = new Object[capacity];
+        values = new Object[capacity];
+        maxEntries = (int)(capacity * MAX_LOAD_FACTOR);
+    }
+
+    /**
+     * Returns how many slots the entry at index sits past its home slot.
+     */
+    private int probeDistance(int index, int mask) {
+        return (index - (hashes[index] & mask)) & mask;
+    }
+
+    /**
+     * Spreads the bits of the key's hash code so that keys with similar hash
+     * codes do not cluster in a power-of-two table. Never returns 0, which
+     * marks an empty slot.
+     */
+    private static int hash(Object key) {
+        int h = key.hashCode();
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h == 0 ? 1 : h;
+    }
+
+    /**
+     * Returns the load factor of this RobinHoodHashMap, defined as the number
+     * of entries / table size.
+     * @return the load factor of this RobinHoodHashMap
+     */
+    public double getLoadFactor() {
+        return (double)numEntries / hashes.length;
+    }
+
+    /**
+     * Returns the length of the longest probe sequence needed to find any key
+     * in this map. This is the open-addressing counterpart of
+     * MyHashMap.computeMaxChainLength().
+     * @return the length of the longest probe sequence in this map
+     */
+    public int computeMaxProbeLength() {
+        int mask = hashes.length - 1;
+        int maxProbeLength = 0;
+        for (int i = 0; i < hashes.length; i++) {
+            if (hashes[i] != 0) {
+                maxProbeLength = Math.max(maxProbeLength,
+                                          probeDistance(i, mask) + 1);
+            }
+        }
+        return maxProbeLength;
+    }
+
+    /**
+     * Returns a string representation of this RobinHoodHashMap for tables
+     * with up to and including 1000 entries.
+     * @return a string representation of this RobinHoodHashMap
+     */
+    public String toString() {
+        if (numEntries > 1000) {
+            return "HashMap too large to represent as a string.";
+        }
+        if (numEntries == 0) {
+            return "HashMap is empty.";
+        }
+        int maxIndexWidth = String.valueOf(hashes.length - 1).length();
+        StringBuilder builder = new StringBuilder();
+        String newLine = System.getProperty("line.separator");
+        for (int i = 0; i < hashes.length; i++) {
+            if (hashes[i] != 0) {
+                int indexWidth = String.valueOf(i).length();
+                builder.append(" ".repeat(maxIndexWidth - indexWidth));
+                builder.append(i);
+                builder.append(": ");
+                builder.append(new Entry<>(keys[i], values[i]));
+                builder.append(newLine);
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Returns an iterator over the mappings in this RobinHoodHashMap in the
+     * order in which they appear in the table. Each call to next() returns a
+     * new Entry holding the key and value.
+     * @return an iterator over the mappings in this RobinHoodHashMap
+     */
+    public Iterator<Entry<K, V>> iterator() {
+        return new MapItr();
+    }
+
+    private class MapItr implements Iterator<Entry<K, V>> {
+        private int index;
+
+        MapItr() {
+            advanceToNextEntry();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return index < hashes.length;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Entry<K, V> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Entry<K, V> e = new Entry<>((K)keys[index], (V)values[index]);
+            index++;
+            advanceToNextEntry();
+            return e;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        private void advanceToNextEntry() {
+            while (index < hashes.length && hashes[index] == 0) {
+                index++;
+            }
+        }
+    }
+
+    public static void main(String[] args) {
+        RobinHoodHashMap<String, Integer> map = new RobinHoodHashMap<>();
+        int upperLimit = 1000;
+        int expectedSum = 0;
+        for (int i = 1; i <= upperLimit; i++) {
+            map.put(String.valueOf(i), i);
+            expectedSum += i;
+        }
+        System.out.println("Size            : " + map.size());
+        System.out.println("Table size      : " + map.getTableSize());
+        System.out.println("Load factor     : " + map.getLoadFactor());
+        System.out.println("Max probe length: " + map.computeMaxProbeLength());
+        System.out.println("Expected sum: " + expectedSum);
+
+        int receivedSum = 0;
+        for (int i = 1; i <= upperLimit; i++) {
+            receivedSum += map.get(String.valueOf(i));
+        }
+        System.out.println("Received sum: " + receivedSum);
+
+        // replace all the values, and inspect again
+        expectedSum = 0;
+        for (int i = 1; i <= upperLimit; i++) {
+            int newValue = upperLimit - i + 1;
+            map.put(String.valueOf(i), newValue);
+            expectedSum += newValue;
+        }
+        System.out.println("Size            : " + map.size());
+        System.out.println("Expected sum: " + expectedSum);
+        receivedSum = 0;
+        Iterator<Entry<String, Integer>> iter = map.iterator();
+        while (iter.hasNext()) {
+            receivedSum += iter.next().value;
+        }
+        System.out.println("Received sum: " + receivedSum);
+
+        // remove the odd keys first so the even keys must survive the
+        // backward shifts, then remove the even keys
+        receivedSum = 0;
+        for (int i = 1; i <= upperLimit; i += 2) {
+            receivedSum += map.remove(String.valueOf(i));
+        }
+        for (int i = 2; i <= upperLimit; i += 2) {
+            receivedSum += map.remove(String.valueOf(i));
+        }
+        System.out.println("Received sum: " + receivedSum);
+        System.out.println("Size            : " + map.size());
+        System.out.println();
+
+        compareWithMyHashMap(200000);
+    }
+
+    /**
+     * Compares memory use and get time of RobinHoodHashMap and MyHashMap
+     * holding the same n String mappings.
+     */
+    private static void compareWithMyHashMap(int n) {
+        String[] keys = new String[n];
+        for (int i = 0; i < n; i++) {
+            keys[i] = "key" + i;
+        }
+        Integer one = 1;
+        long before = usedMemory();
+        MyHashMap<String, Integer> chained = new MyHashMap<>();
+        for (String key : keys) {
+            chained.put(key, one);
+        }
+        long chainedBytes = usedMemory() - before;
+        before = usedMemory();
+        RobinHoodHashMap<String, Integer> open = new RobinHoodHashMap<>();
+        for (String key : keys) {
+            open.put(key, one);
+        }
+        long openBytes = usedMemory() - before;
+
+        // Look the keys up in random order so neither map benefits from
+        // walking its table sequentially.
+        Random random = new Random(42);
+        for (int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            String tmp = keys[i];
+            keys[i] = keys[j];
+            keys[j] = tmp;
+        }
+        long chainedTime = 0, openTime = 0, checksum = 0;
+        for (int round = 0; round < 10; round++) {
+            long start = System.nanoTime();
+            for (String key : keys) {
+                checksum += chained.get(key);
+            }
+            chainedTime = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (String key : keys) {
+                checksum -= open.get(key);
+            }
+            openTime = System.nanoTime() - start;
+        }
+        System.out.println("Entries: " + n + (checksum == 0 ? "" : " (mismatch)"));
+        System.out.printf("MyHashMap        : %6.1f bytes/entry, %6.1f ns/get\n",
+                          (double)chainedBytes / n, (double)chainedTime / n);
+        System.out.printf("RobinHoodHashMap : %6.1f bytes/entry, %6.1f ns/get\n",
+                          (double)openBytes / n, (double)openTime / n);
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,274 @@
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Random;
+
+/**
+ * Class that implements a splay tree on top of BSTMap. After every get, put
+ * and remove, the last Node reached is rotated all the way up to the root,
+ * two levels at a time: the Node holding the key if there is one, and
+ * otherwise the Node at which the search fell off the tree. Once a remove
+ * has unlinked the key's Node, the lowest Node whose subtree changed is
+ * splayed as well. Keys that are looked up often therefore stay near the
+ * root, and a skewed sequence of lookups visits far fewer Nodes than it
+ * would in a static balanced tree. Any sequence of m operations takes
+ * O(m log n) time in all, though a single operation can take O(n).
+ * <p>
+ * Because get restructures the tree, a SplayMap must not be read by several
+ * threads at once, and the cached shape statistics are measured again after
+ * each lookup.
+ * @author Fengzhe Liu (fl2635)
+ * @version 1.0 October 18, 2026
+ */
+public class SplayMap<K extends Comparable<K>, V> extends BSTMap<K, V> {
+    private long lookups, nodesVisited;
+
+    /**
+     * Creates an empty splay tree map.
+     */
+    public SplayMap() { }
+
+    /**
+     * Creates a splay tree map of the given key-value pairs.
+     * @param elements an array of key-value pairs
+     */
+    public SplayMap(Pair<K, V>[] elements) {
+        super(elements);
+    }
+
+    /**
+     * Creates a splay tree map of the given key-value pairs. If sorted is
+     * true, the tree is built directly from the array in linear time.
+     * @param elements an array of key-value pairs
+     * @param sorted   true if the pairs are sorted by key
+     */
+    public SplayMap(Pair<K, V>[] elements, boolean sorted) {
+        super(elements, sorted);
+    }
+
+    /**
+     * Creates a splay tree map of the key-value pairs returned by the
+     * iterator, which must be in strictly ascending key order.
+     * @param sortedPairs an iterator over key-value pairs sorted by key
+     * @throws IllegalArgumentException if the keys are not strictly ascending
+     */
+    public SplayMap(Iterator<Pair<K, V>> sortedPairs) {
+        super(sortedPairs);
+    }
+
+    @Override
+    protected BSTMap<K, V> newMap() {
+        return new SplayMap<>();
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or null if this
+     * map contains no mapping for the key. The last Node on the search path
+     * is splayed to the root, whether or not it holds the key.
+     * @param  key the key whose associated value is to be returned
+     * @return the value to which the specified key is mapped, or null if this
+     *         map contains no mapping for the key
+     */
+    @Override
+    public V get(K key) {
+        Node<K, V> x = root, last = null;
+        lookups++;
+        while (x != null) {
+            nodesVisited++;
+            last = x;
+            int comparison = key.compareTo(x.key);
+            if (comparison < 0) {
+                x = x.left;
+            } else if (comparison > 0) {
+                x = x.right;
+            } else {
+                break;
+            }
+        }
+        if (last == null) {
+            return null;
+        }
+        splay(last);
+        return x != null ? x.value : null;
+    }
+
+    /**
+     * Associates the specified value with the specified key in this map. If
+     * the key is already present, its Node is splayed to the root and its
+     * value replaced; otherwise the new Node is splayed to the root.
+     * @param key   the key with which the specified value is to be associated
+     * @param value the value to be associated with the specified key
+     * @return the previous value associated with key, or null if there was no
+     *         mapping for key
+     */
+    @Override
+    public V put(K key, V value) {
+        if (splaySearch(key)) {
+            V oldValue = root.value;
+            root.value = value;
+            return oldValue;
+        }
+        // The last Node reached is now the root, so the key is inserted as
+        // one of its children.
+        return super.put(key, value);
+    }
+
+    /**
+     * Removes the mapping for a key from this map if it is present. If it is
+     * not, the last Node on the search path is splayed to the root.
+     * @param key key whose mapping is to be removed from the map
+     * @return the previous value associated with key, or null if there was no
+     *         mapping for key
+     */
+    @Override
+    public V remove(K key) {
+        return splaySearch(key) ? super.remove(key) : null;
+    }
+
+    /**
+     * Searches for key and splays the last Node on the search path to the
+     * root.
+     * @param key the key to search for
+     * @return true if the root now holds key
+     */
+    private boolean splaySearch(K key) {
+        Node<K, V> x = root, last = null;
+        while (x != null) {
+            last = x;
+            int comparison = key.compareTo(x.key);
+            if (comparison < 0) {
+                x = x.left;
+            } else if (comparison > 0) {
+                x = x.right;
+            } else {
+                break;
+            }
+        }
+        if (last == null) {
+            return false;
+        }
+        splay(last);
+        return x != null;
+    }
+
+    /**
+     * Returns the average number of Nodes that get has visited per call so
+     * far. For the same keys in a static tree, this would approach
+     * successfulSearchCost() if every key were looked up equally often.
+     * @return the average number of Nodes visited per get, or 0 if get has
+     *         not been called
+     */
+    public double averageLookupCost() {
+        return lookups == 0 ? 0 : (double)nodesVisited / lookups;
+    }
+
+    @Override
+    protected void afterInsert(Node<K, V> z) {
+        splay(z);
+    }
+
+    @Override
+    protected void afterRemove(Node<K, V> x) {
+        if (x != null) {
+            splay(x);
+        }
+    }
+
+    /**
+     * Rotates x up to the root. When x and its parent are children on the
+     * same side, the parent is rotated first (zig-zig); this is what roughly
+     * halves the depth of every Node on the path, and what a plain
+     * move-to-root would miss.
+     */
+    private void splay(Node<K, V> x) {
+        while (x.parent != null) {
+            Node<K, V> p = x.parent, g = p.parent;
+            if (g != null && (x == p.left) == (p == g.left)) {
+                rotateUp(p);
+            } else if (g != null) {
+                rotateUp(x);
+            }
+            rotateUp(x);
+        }
+    }
+
+    /**
+     * Rotates x above its parent.
+     */
+    private void rotateUp(Node<K, V> x) {
+        if (x == x.parent.left) {
+            rotateRight(x.parent);
+        } else {
+            rotateLeft(x.parent);
+        }
+    }
+
+    /**
+     * Looks up keys drawn from a Zipf distribution in a balanced BSTMap and
+     * in a SplayMap of the same keys, and compares the Nodes visited per
+     * lookup and the time taken.
+     */
+    public static void main(String[] args) {
+        int n = 1000000, lookups = 2000000;
+        @SuppressWarnings("unchecked")
+        Pair<Integer, Integer>[] pairs = new Pair[n];
+        for (int i = 0; i < n; i++) {
+            pairs[i] = new Pair<>(i, i);
+        }
+        BSTMap<Integer, Integer> balanced = new BSTMap<>(pairs, true);
+        SplayMap<Integer, Integer> splay = new SplayMap<>(pairs, true);
+
+        // The key of rank r is hot in proportion to 1 / r^1.2, so about 80%
+        // of lookups go to the 300 hottest keys. The ranks are given to keys
+        // in random order, so the hot keys are spread out.
+        Random random = new Random(42);
+        int[] keyOfRank = new int[n];
+        for (int i = 0; i < n; i++) {
+            int j = random.nextInt(i + 1);
+            keyOfRank[i] = keyOfRank[j];
+            keyOfRank[j] = i;
+        }
+        double[] cumulative = new double[n];
+        double total = 0;
+        for (int r = 0; r < n; r++) {
+            total += Math.pow(r + 1, -1.2);
+            cumulative[r] = total;
+        }
+        Integer[] queries = new Integer[lookups];
+        for (int i = 0; i < lookups; i++) {
+            int r = Arrays.binarySearch(cumulative,
+                                        random.nextDouble() * total);
+            queries[i] = keyOfRank[r < 0 ? -r - 1 : r];
+        }
+
+        System.out.println("Keys: " + n + ", Zipf lookups: " + lookups);
+        System.out.printf("Balanced successfulSearchCost: %.2f\n",
+                          balanced.successfulSearchCost());
+        for (int round = 0; round < 3; round++) {
+            long balancedTime = timeLookups(balanced, queries);
+            splay.lookups = splay.nodesVisited = 0;
+            long splayTime = timeLookups(splay, queries);
+            if (round == 2) {   // the first rounds warm up the JIT
+                System.out.printf("SplayMap averageLookupCost:    %.2f\n",
+                                  splay.averageLookupCost());
+                System.out.printf("BSTMap get:                    %.1f ns\n",
+                                  (double)balancedTime / lookups);
+                System.out.printf("SplayMap get:                  %.1f ns\n",
+                                  (double)splayTime / lookups);
+            }
+        }
+    }
+
+    private static long timeLookups(BSTMap<Integer, Integer> map,
+                                    Integer[] queries) {
+        long start = System.nanoTime();
+        long sum = 0;
+        for (Integer key : queries) {
+            sum += map.get(key);
+        }
+        long elapsed = System.nanoTime() - start;
+        if (sum == 42) {        // keep the JIT from dropping the lookups
+            System.out.println();
+        }
+        return elapsed;
+    }
+}
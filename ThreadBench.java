@@ -0,0 +1,50 @@
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Harness shared by the multithreaded benchmarks in the main methods of the
+ * concurrent maps. It starts a number of threads that all wait on one latch,
+ * so that they begin at the same moment, and waits for them to finish.
+ * @author Fengzhe Liu (fl2635)
+ * @version 1.0 October 18, 2026
+ */
+class ThreadBench {
+
+    /**
+     * The work done by each thread.
+     */
+    interface ThreadBody {
+        void run(int threadNumber);
+    }
+
+    private ThreadBench() { }
+
+    /**
+     * Runs body on the given number of threads, all released at the same
+     * time, and waits for them to finish.
+     * @param threads the number of threads to run
+     * @param body    the work of each thread, given its number from 0 to
+     *                threads - 1
+     * @throws InterruptedException if interrupted while waiting
+     */
+    static void runThreads(int threads, ThreadBody body)
+            throws InterruptedException {
+        CountDownLatch startSignal = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            int threadNumber = t;
+            workers[t] = new Thread(() -> {
+                try {
+                    startSignal.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                body.run(threadNumber);
+            });
+            workers[t].start();
+        }
+        startSignal.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+    }
+}